@@ -0,0 +1,261 @@
+package com.streamweaver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.streamweaver.entity.MessageMetadata;
+import com.streamweaver.entity.SchemaVersion;
+import com.streamweaver.repository.MessageMetadataBatchRepository;
+import com.streamweaver.repository.MessageMetadataRepository;
+import com.streamweaver.repository.SchemaVersionRepository;
+import com.streamweaver.repository.TopicServiceStatsRepository;
+import com.streamweaver.service.AvroEnvelopeEncoder;
+import com.streamweaver.service.ConcurrencyController;
+import com.streamweaver.service.InFlightLimiter;
+import com.streamweaver.service.IngestMetrics;
+import com.streamweaver.service.KafkaConsumerService;
+import com.streamweaver.service.KeyOrderedExecutor;
+import com.streamweaver.service.NormalizedEnvelopeWriter;
+import com.streamweaver.service.OffsetTracker;
+import com.streamweaver.service.PayloadDiagnostics;
+import com.streamweaver.service.PayloadExtractor;
+import com.streamweaver.service.PayloadStorage;
+import com.streamweaver.service.PayloadSummary;
+import com.streamweaver.service.ProcessedOffsets;
+import com.streamweaver.service.RecentMessageIndex;
+import com.streamweaver.service.RegistryRestClient;
+import com.streamweaver.service.SchemaFingerprintCache;
+import com.streamweaver.service.SchemaRegistryService;
+import com.streamweaver.service.SpillLog;
+import com.streamweaver.service.TopicStatsService;
+import com.streamweaver.service.WindowAggregator;
+import io.confluent.kafka.schemaregistry.testutil.MockSchemaRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts the ingest services in a small Spring context without Postgres or a broker:
+ * settings come from application.yml, repositories are in-memory proxies and Kafka
+ * sends complete immediately after serialization. Services are wired and initialized
+ * by Spring exactly as in the application, so a dependency added to them later is
+ * either supplied here or fails the setup instead of surfacing as a measured error path.
+ */
+final class BenchmarkFixtures {
+
+    // The corpus replays the same offsets, which would all be skipped; nothing is spilled
+    private static final Map<String, Object> OVERRIDES = Map.of(
+        "streamweaver.consumer.dedup.enabled", false,
+        "streamweaver.spill.enabled", false);
+
+    private static final String FAILURES = "streamweaver.ingest.failures";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Context whose subjects already have the schemas of seedPayloads registered, so the
+     * measured path is the steady-state no-drift one. Callers close it when done.
+     */
+    static AnnotationConfigApplicationContext context(List<String> seedPayloads) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        MutablePropertySources properties = context.getEnvironment().getPropertySources();
+        properties.addFirst(new MapPropertySource("benchmark", OVERRIDES));
+        try {
+            for (PropertySource<?> source : new YamlPropertySourceLoader()
+                     .load("application.yml", new ClassPathResource("application.yml"))) {
+                properties.addLast(source);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load application.yml", e);
+        }
+
+        ConfigurableListableBeanFactory beans = context.getBeanFactory();
+        // Durations, comma-separated sets and the like bind as in the application
+        beans.setConversionService(new ApplicationConversionService());
+        KafkaTemplate<String, String> kafkaTemplate = kafkaTemplate(new StringSerializer());
+        beans.registerSingleton("kafkaTemplate", kafkaTemplate);
+        beans.registerSingleton("byteArrayKafkaTemplate", kafkaTemplate(new ByteArraySerializer()));
+        beans.registerSingleton("deadLetterPublishingRecoverer", new DeadLetterPublishingRecoverer(kafkaTemplate));
+        beans.registerSingleton("messageMetadataBatchRepository", messageMetadataBatchRepository());
+        beans.registerSingleton("schemaVersionRepository", schemaVersionRepository());
+        beans.registerSingleton("messageMetadataRepository", repository(MessageMetadataRepository.class,
+            (method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            }));
+        beans.registerSingleton("topicServiceStatsRepository", topicServiceStatsRepository());
+        beans.registerSingleton("schemaRegistryClient", MockSchemaRegistry.getClientForScope("benchmark"));
+        beans.registerSingleton("meterRegistry", new SimpleMeterRegistry());
+        beans.registerSingleton("objectMapper", new ObjectMapper());
+        beans.registerSingleton("persistExecutor", new SimpleAsyncTaskExecutor("sw-persist-"));
+        beans.registerSingleton("kafkaListenerEndpointRegistry", new KafkaListenerEndpointRegistry());
+        // Not a Hikari pool, so ConcurrencyController reads no pool metrics; it is not scheduled here anyway
+        beans.registerSingleton("writeDataSource", new SimpleDriverDataSource());
+
+        context.register(
+            PayloadExtractor.class, SchemaFingerprintCache.class, RegistryRestClient.class, SchemaRegistryService.class,
+            NormalizedEnvelopeWriter.class, AvroEnvelopeEncoder.class, PayloadStorage.class, SpillLog.class,
+            PayloadDiagnostics.class, InFlightLimiter.class, ConcurrencyController.class, IngestMetrics.class,
+            TopicStatsService.class, ProcessedOffsets.class, RecentMessageIndex.class, WindowAggregator.class,
+            KeyOrderedExecutor.class, OffsetTracker.class, KafkaConsumerService.class);
+        context.refresh();
+
+        PayloadExtractor payloadExtractor = context.getBean(PayloadExtractor.class);
+        SchemaRegistryService schemaRegistryService = context.getBean(SchemaRegistryService.class);
+        for (String payload : seedPayloads) {
+            PayloadSummary summary = payloadExtractor.extract(payload);
+            schemaRegistryService.registerSchema(summary.getServiceName() + "-schema",
+                payloadExtractor.describe(payload), "benchmark");
+        }
+        return context;
+    }
+
+    /**
+     * Throw if any record failed since the context started: a run that measured the
+     * error path instead of ingest has no valid result
+     */
+    static void assertNoFailures(ApplicationContext context) {
+        double failures = context.getBean(MeterRegistry.class).find(FAILURES).counters().stream()
+            .mapToDouble(Counter::count)
+            .sum();
+        if (failures > 0) {
+            throw new IllegalStateException((long) failures + " records failed during the benchmark, see "
+                                            + FAILURES + " by step");
+        }
+    }
+
+    static <V> KafkaTemplate<String, V> kafkaTemplate(Serializer<V> valueSerializer) {
+        Map<String, Object> config = Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "benchmark:9092");
+        DefaultKafkaProducerFactory<String, V> factory =
+            new DefaultKafkaProducerFactory<>(config, new StringSerializer(), valueSerializer) {
+                @Override
+                protected Producer<String, V> createKafkaProducer() {
+                    return new DiscardingProducer<>(new StringSerializer(), valueSerializer);
+                }
+            };
+        return new KafkaTemplate<>(factory);
+    }
+
+    static MessageMetadataBatchRepository messageMetadataBatchRepository() {
+        AtomicLong ids = new AtomicLong();
+        return new MessageMetadataBatchRepository() {
+            @Override
+            public MessageMetadata insert(MessageMetadata metadata) {
+                metadata.setId(ids.incrementAndGet());
+                return metadata;
+            }
+
+            @Override
+            public List<MessageMetadata> insertAll(List<MessageMetadata> messages) {
+                messages.forEach(metadata -> metadata.setId(ids.incrementAndGet()));
+                return messages;
+            }
+        };
+    }
+
+    static SchemaVersionRepository schemaVersionRepository() {
+        Map<String, SchemaVersion> latestBySubject = new ConcurrentHashMap<>();
+        return repository(SchemaVersionRepository.class, (method, args) -> {
+            switch (method.getName()) {
+                case "findTopBySubjectOrderByVersionDesc":
+                    return Optional.ofNullable(latestBySubject.get((String) args[0]));
+                case "findLatestVersions":
+                    return new ArrayList<>(latestBySubject.values());
+                case "save":
+                    SchemaVersion version = (SchemaVersion) args[0];
+                    latestBySubject.put(version.getSubject(), version);
+                    return version;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    // Checkpoints are discarded; totals are never read during a benchmark
+    static TopicServiceStatsRepository topicServiceStatsRepository() {
+        return repository(TopicServiceStatsRepository.class, (method, args) -> {
+            if (method.getName().equals("addDelta")) {
+                return null;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private interface RepositoryHandler {
+        Object handle(Method method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T repository(Class<T> type, RepositoryHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    default: return "InMemory" + type.getSimpleName();
+                }
+            }
+            return handler.handle(method, args);
+        });
+    }
+
+    /**
+     * Serializes the value like a real producer would, then completes at once without retaining it
+     */
+    private static final class DiscardingProducer<K, V> extends MockProducer<K, V> {
+
+        private final Serializer<V> valueSerializer;
+
+        DiscardingProducer(Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+            super(true, keySerializer, valueSerializer);
+            this.valueSerializer = valueSerializer;
+        }
+
+        @Override
+        public Future<RecordMetadata> send(ProducerRecord<K, V> record, Callback callback) {
+            byte[] value = valueSerializer.serialize(record.topic(), record.value());
+            RecordMetadata metadata = new RecordMetadata(new TopicPartition(record.topic(), 0),
+                0L, 0, System.currentTimeMillis(), 0, value != null ? value.length : 0);
+            if (callback != null) {
+                callback.onCompletion(metadata, null);
+            }
+            return CompletableFuture.completedFuture(metadata);
+        }
+    }
+}
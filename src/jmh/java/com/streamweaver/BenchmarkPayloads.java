@@ -0,0 +1,110 @@
+package com.streamweaver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic payload corpora for the ingest benchmarks.
+ *
+ * small-log: a typical application log line (~250 bytes).
+ * wide-event: a flat analytics event with 150 mixed-type fields (~4 KB).
+ * nested-iot: a device telemetry record nested six levels deep with reading arrays.
+ */
+final class BenchmarkPayloads {
+
+    static final String SMALL_LOG = "small-log";
+    static final String WIDE_EVENT = "wide-event";
+    static final String NESTED_IOT = "nested-iot";
+
+    private static final String[] SERVICES = {"checkout-api", "payment-service", "inventory", "auth-gateway"};
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "WARN", "ERROR", "DEBUG"};
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchmarkPayloads() {
+    }
+
+    static List<String> corpus(String kind, int size) {
+        Random random = new Random(42);
+        List<String> payloads = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> payload;
+            switch (kind) {
+                case SMALL_LOG -> payload = smallLog(random, i);
+                case WIDE_EVENT -> payload = wideEvent(random, i);
+                case NESTED_IOT -> payload = nestedIot(random, i);
+                default -> throw new IllegalArgumentException("Unknown corpus: " + kind);
+            }
+            try {
+                payloads.add(MAPPER.writeValueAsString(payload));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return payloads;
+    }
+
+    private static Map<String, Object> smallLog(Random random, int i) {
+        Map<String, Object> log = new LinkedHashMap<>();
+        log.put("timestamp", Instant.ofEpochMilli(1_700_000_000_000L + i * 37L).toString());
+        log.put("service", SERVICES[random.nextInt(SERVICES.length)]);
+        log.put("level", LEVELS[random.nextInt(LEVELS.length)]);
+        log.put("message", "Request " + i + " completed with status " + (200 + random.nextInt(4) * 100));
+        log.put("trace_id", Long.toHexString(random.nextLong()));
+        log.put("duration_ms", random.nextInt(2_000));
+        log.put("retry", random.nextBoolean());
+        return log;
+    }
+
+    private static Map<String, Object> wideEvent(Random random, int i) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("service", "analytics-collector");
+        event.put("level", "INFO");
+        event.put("event_id", i);
+        for (int f = 0; f < 150; f++) {
+            switch (f % 5) {
+                case 0 -> event.put("dim_" + f, "value-" + random.nextInt(1_000));
+                case 1 -> event.put("count_" + f, random.nextInt(100_000));
+                case 2 -> event.put("ratio_" + f, random.nextDouble());
+                case 3 -> event.put("flag_" + f, random.nextBoolean());
+                default -> event.put("ts_" + f, 1_700_000_000_000L + random.nextInt(1_000_000));
+            }
+        }
+        return event;
+    }
+
+    private static Map<String, Object> nestedIot(Random random, int i) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("application", "iot-ingest");
+        record.put("severity", "INFO");
+        record.put("device_id", "sensor-" + (i % 500));
+        record.put("site", nestedLevel(random, 5));
+        List<Map<String, Object>> readings = new ArrayList<>();
+        for (int r = 0; r < 20; r++) {
+            Map<String, Object> reading = new LinkedHashMap<>();
+            reading.put("t", 1_700_000_000L + r);
+            reading.put("temperature", 15 + random.nextDouble() * 10);
+            reading.put("humidity", random.nextInt(100));
+            reading.put("ok", random.nextBoolean());
+            readings.add(reading);
+        }
+        record.put("readings", readings);
+        return record;
+    }
+
+    private static Map<String, Object> nestedLevel(Random random, int depth) {
+        Map<String, Object> level = new LinkedHashMap<>();
+        level.put("name", "zone-" + random.nextInt(50));
+        level.put("battery", random.nextInt(100));
+        level.put("online", random.nextBoolean());
+        if (depth > 0) {
+            level.put("child", nestedLevel(random, depth - 1));
+        }
+        return level;
+    }
+}
@@ -0,0 +1,92 @@
+package com.streamweaver;
+
+import com.streamweaver.service.KafkaConsumerService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full per-record consume logic (extract, drift check, normalize, persist, stats,
+ * send) with in-memory repositories and an immediately-completing producer.
+ * Runs in steady state: every subject already has its current schema registered.
+ * Any ingest failure fails the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ConsumePipelineBenchmark {
+
+    private static final int CORPUS_SIZE = 256;
+
+    @Param({BenchmarkPayloads.SMALL_LOG, BenchmarkPayloads.WIDE_EVENT, BenchmarkPayloads.NESTED_IOT})
+    public String corpus;
+
+    private ConsumerRecord<String, String>[] records;
+    private ConsumerRecord<String, byte[]>[] byteRecords;
+    private int cursor;
+
+    private AnnotationConfigApplicationContext context;
+    private KafkaConsumerService consumerService;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        List<String> payloads = BenchmarkPayloads.corpus(corpus, CORPUS_SIZE);
+        context = BenchmarkFixtures.context(payloads);
+        consumerService = context.getBean(KafkaConsumerService.class);
+
+        records = new ConsumerRecord[CORPUS_SIZE];
+        byteRecords = new ConsumerRecord[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            String payload = payloads.get(i);
+            records[i] = new ConsumerRecord<>("raw-data", 0, i, "key-" + i, payload);
+            byteRecords[i] = new ConsumerRecord<>("raw-data", 0, i, "key-" + i,
+                payload.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // A record that failed anywhere on the path makes the iteration's number meaningless
+    @TearDown(Level.Iteration)
+    public void checkFailures() {
+        BenchmarkFixtures.assertNoFailures(context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (CORPUS_SIZE - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public void consumeRawData() {
+        consumerService.consumeRawData(records[next()]);
+    }
+
+    @Benchmark
+    public void consumeRawBytes() {
+        consumerService.consumeRawBytes(byteRecords[next()]);
+    }
+}
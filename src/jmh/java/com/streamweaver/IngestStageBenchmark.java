@@ -0,0 +1,112 @@
+package com.streamweaver;
+
+import com.streamweaver.service.KafkaConsumerService;
+import com.streamweaver.service.NormalizedEnvelopeWriter;
+import com.streamweaver.service.PayloadExtractor;
+import com.streamweaver.service.PayloadSummary;
+import com.streamweaver.service.SchemaFingerprintCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message ingest stages in isolation: payload extraction (service, level and
+ * structural hash), schema document building and hashing, and envelope normalization.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IngestStageBenchmark {
+
+    private static final int CORPUS_SIZE = 256;
+
+    @Param({BenchmarkPayloads.SMALL_LOG, BenchmarkPayloads.WIDE_EVENT, BenchmarkPayloads.NESTED_IOT})
+    public String corpus;
+
+    private String[] payloads;
+    private byte[][] payloadBytes;
+    private String[] schemas;
+    private int cursor;
+
+    private PayloadExtractor payloadExtractor;
+    private NormalizedEnvelopeWriter normalizedEnvelopeWriter;
+    private AnnotationConfigApplicationContext context;
+    private KafkaConsumerService consumerService;
+
+    @Setup
+    public void setup() {
+        List<String> corpusPayloads = BenchmarkPayloads.corpus(corpus, CORPUS_SIZE);
+        payloadExtractor = new PayloadExtractor();
+        normalizedEnvelopeWriter = new NormalizedEnvelopeWriter();
+        context = BenchmarkFixtures.context(corpusPayloads);
+        consumerService = context.getBean(KafkaConsumerService.class);
+
+        payloads = corpusPayloads.toArray(new String[0]);
+        payloadBytes = new byte[CORPUS_SIZE][];
+        schemas = new String[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            payloadBytes[i] = payloads[i].getBytes(StandardCharsets.UTF_8);
+            schemas[i] = payloadExtractor.describe(payloads[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (CORPUS_SIZE - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public PayloadSummary extractFromString() {
+        return payloadExtractor.extract(payloads[next()]);
+    }
+
+    @Benchmark
+    public PayloadSummary extractFromBytes() {
+        return payloadExtractor.extract(payloadBytes[next()]);
+    }
+
+    @Benchmark
+    public long fingerprintSchema() {
+        return SchemaFingerprintCache.fingerprint(schemas[next()]);
+    }
+
+    /**
+     * Schema document built when a new version is registered (off the no-drift path)
+     */
+    @Benchmark
+    public String describeSchema() {
+        return payloadExtractor.describe(payloads[next()]);
+    }
+
+    @Benchmark
+    public String normalizeString() {
+        return consumerService.normalizeData(payloads[next()]);
+    }
+
+    @Benchmark
+    public byte[] normalizeBytes() {
+        return normalizedEnvelopeWriter.wrap(payloadBytes[next()]);
+    }
+}
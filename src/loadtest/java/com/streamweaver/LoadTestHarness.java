@@ -0,0 +1,423 @@
+package com.streamweaver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of raw-data -> consumer -> Postgres + normalized-data.
+ *
+ * Starts an embedded KRaft Kafka broker and an embedded Postgres (or uses db-url),
+ * runs the real application context against them, produces a synthetic payload mix
+ * and measures until every measured record has been both stored and forwarded.
+ * Latency is measured from the producer's send to the normalized record reaching an
+ * observer consumer, using the send timestamp carried in the payload. The report is
+ * written as JSON so runs of different releases can be compared.
+ *
+ * Arguments are key=value pairs; see Config for names and defaults.
+ */
+public final class LoadTestHarness {
+
+    private static final byte[] SEQ_FIELD = "\"lt_seq\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SENT_FIELD = "\"lt_sent_ns\":".getBytes(StandardCharsets.UTF_8);
+
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        System.out.println("Load test: " + config.describe());
+
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, config.partitions, "raw-data", "normalized-data");
+        broker.afterPropertiesSet();
+        EmbeddedPostgres postgres = config.dbUrl == null ? EmbeddedPostgres.builder().start() : null;
+        String dbUrl = postgres != null ? postgres.getJdbcUrl("postgres", "postgres") : config.dbUrl;
+
+        ConfigurableApplicationContext context = null;
+        try {
+            context = new SpringApplicationBuilder(StreamWeaverApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(MockSchemaRegistryConfig.PROFILE)
+                .properties(applicationProperties(config, broker.getBrokersAsString(), dbUrl))
+                .run();
+            Map<String, Object> report = run(config, broker.getBrokersAsString(), context.getBean(JdbcTemplate.class));
+            write(report, config.report);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (postgres != null) {
+                postgres.close();
+            }
+            broker.destroy();
+        }
+    }
+
+    private static Map<String, Object> applicationProperties(Config config, String brokers, String dbUrl) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.kafka.bootstrap-servers", brokers);
+        properties.put("spring.datasource.url", dbUrl);
+        properties.put("spring.datasource.username", config.dbUser);
+        properties.put("spring.datasource.password", config.dbPassword);
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("schema.registry.url", "mock://loadtest");
+        properties.put("streamweaver.consumer.mode", config.mode);
+        properties.put("streamweaver.consumer.concurrency", config.concurrency);
+        properties.put("streamweaver.output.format", config.outputFormat);
+        properties.put("streamweaver.storage.mode", config.storage);
+        // Per-message logging would dominate the measurement
+        properties.put("logging.level.com.streamweaver", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.put("logging.level.org.springframework.kafka", "WARN");
+        properties.putAll(config.overrides);
+        return properties;
+    }
+
+    private static Map<String, Object> run(Config config, String brokers, JdbcTemplate jdbcTemplate) throws Exception {
+        SyntheticPayloads payloads = new SyntheticPayloads(config.mix, config.services, config.largeBytes, config.seed);
+        long total = config.warmup + config.messages;
+        long[] latencies = new long[config.messages];
+        AtomicLong observed = new AtomicLong();
+        AtomicLong forwarded = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread observer = new Thread(() -> observe(brokers, config, latencies, observed, forwarded, running), "lt-observer");
+        observer.start();
+
+        GcSnapshot gcBefore = null;
+        long measuredStart = 0;
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(producerConfig(brokers))) {
+            long intervalNanos = config.rate > 0 ? TimeUnit.SECONDS.toNanos(1) / config.rate : 0;
+            long nextSend = System.nanoTime();
+            for (long seq = 0; seq < total; seq++) {
+                if (seq == config.warmup) {
+                    awaitCount(jdbcTemplate, forwarded, config.warmup, config.timeout);
+                    gcBefore = GcSnapshot.start();
+                    measuredStart = System.nanoTime();
+                    nextSend = measuredStart;
+                }
+                if (intervalNanos > 0) {
+                    long wait = nextSend - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    nextSend += intervalNanos;
+                }
+                SyntheticPayloads.Template template = payloads.next();
+                producer.send(new ProducerRecord<>("raw-data", template.service(),
+                    template.render(seq, System.nanoTime())));
+            }
+            producer.flush();
+        }
+        if (gcBefore == null) {
+            gcBefore = GcSnapshot.start();
+            measuredStart = System.nanoTime();
+        }
+
+        long persisted = awaitCount(jdbcTemplate, forwarded, total, config.timeout);
+        long elapsedNanos = System.nanoTime() - measuredStart;
+        GcSnapshot gcAfter = GcSnapshot.take();
+        running.set(false);
+        observer.join(TimeUnit.SECONDS.toMillis(10));
+
+        int measured = (int) Math.min(observed.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, measured);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("produced", config.messages);
+        results.put("persisted", persisted - config.warmup);
+        results.put("forwarded", forwarded.get() - config.warmup);
+        results.put("duration_s", round(seconds));
+        results.put("throughput_msgs_per_s", round(config.messages / seconds));
+        results.put("complete", persisted >= total && forwarded.get() >= total);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("samples", measured);
+        latency.put("mean_ms", measured > 0 ? round(Arrays.stream(sorted).average().orElse(0) / 1e6) : null);
+        latency.put("p50_ms", percentile(sorted, 0.50));
+        latency.put("p90_ms", percentile(sorted, 0.90));
+        latency.put("p99_ms", percentile(sorted, 0.99));
+        latency.put("p999_ms", percentile(sorted, 0.999));
+        latency.put("max_ms", measured > 0 ? round(sorted[measured - 1] / 1e6) : null);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("version", System.getProperty("streamweaver.version", "dev"));
+        report.put("timestamp", Instant.now().toString());
+        report.put("jvm", Map.of(
+            "version", System.getProperty("java.version"),
+            "processors", Runtime.getRuntime().availableProcessors(),
+            "max_heap_bytes", Runtime.getRuntime().maxMemory()));
+        report.put("config", config.asMap());
+        report.put("results", results);
+        report.put("latency", latency);
+        report.put("gc", gcAfter.since(gcBefore, elapsedNanos));
+        return report;
+    }
+
+    /**
+     * Count normalized records and record the send-to-forward latency of measured ones
+     */
+    private static void observe(String brokers, Config config, long[] latencies,
+                                AtomicLong observed, AtomicLong forwarded, AtomicBoolean running) {
+        Map<String, Object> consumerConfig = new LinkedHashMap<>();
+        consumerConfig.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        consumerConfig.put(ConsumerConfig.GROUP_ID_CONFIG, "loadtest-observer");
+        consumerConfig.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumerConfig.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        consumerConfig.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        try (KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(consumerConfig)) {
+            consumer.subscribe(List.of("normalized-data"));
+            while (running.get()) {
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(Duration.ofMillis(100))) {
+                    long now = System.nanoTime();
+                    forwarded.incrementAndGet();
+                    long seq = readLong(record.value(), SEQ_FIELD);
+                    long sent = readLong(record.value(), SENT_FIELD);
+                    if (seq >= config.warmup && sent >= 0) {
+                        long slot = observed.getAndIncrement();
+                        if (slot < latencies.length) {
+                            latencies[(int) slot] = now - sent;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Rows in message_metadata once forwarded has also caught up, or whatever was reached at the timeout
+    private static long awaitCount(JdbcTemplate jdbcTemplate, AtomicLong forwarded, long expected, Duration timeout)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long persisted = 0;
+        while (System.nanoTime() < deadline) {
+            persisted = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message_metadata", Long.class);
+            if (persisted >= expected && forwarded.get() >= expected) {
+                return persisted;
+            }
+            Thread.sleep(20);
+        }
+        System.err.printf("Timed out after %s: %d/%d persisted, %d/%d forwarded%n",
+                          timeout, persisted, expected, forwarded.get(), expected);
+        return persisted;
+    }
+
+    /**
+     * Digits following a field name in the payload bytes; the raw payload is carried
+     * verbatim in both the JSON and the Avro envelope
+     */
+    private static long readLong(byte[] value, byte[] field) {
+        outer:
+        for (int i = 0; i <= value.length - field.length; i++) {
+            for (int j = 0; j < field.length; j++) {
+                if (value[i + j] != field[j]) {
+                    continue outer;
+                }
+            }
+            long result = 0;
+            int pos = i + field.length;
+            if (pos >= value.length || value[pos] < '0' || value[pos] > '9') {
+                return -1;
+            }
+            while (pos < value.length && value[pos] >= '0' && value[pos] <= '9') {
+                result = result * 10 + (value[pos++] - '0');
+            }
+            return result;
+        }
+        return -1;
+    }
+
+    private static Map<String, Object> producerConfig(String brokers) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024);
+        config.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, 8 * 1024 * 1024);
+        return config;
+    }
+
+    private static Double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return null;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return round(sorted[Math.max(0, index)] / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static void write(Map<String, Object> report, String path) throws Exception {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        File file = new File(path);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        mapper.writeValue(file, report);
+        System.out.println(mapper.writeValueAsString(report));
+        System.out.println("Report written to " + file.getAbsolutePath());
+    }
+
+    /**
+     * Collector counts and pause time plus peak heap, for GC pressure over the measured phase
+     */
+    private record GcSnapshot(long collections, long pauseMs) {
+
+        static GcSnapshot take() {
+            long collections = 0;
+            long pauseMs = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                collections += Math.max(0, gc.getCollectionCount());
+                pauseMs += Math.max(0, gc.getCollectionTime());
+            }
+            return new GcSnapshot(collections, pauseMs);
+        }
+
+        // Start of the measured phase: peak heap is reported from here on
+        static GcSnapshot start() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+            return take();
+        }
+
+        Map<String, Object> since(GcSnapshot before, long elapsedNanos) {
+            long peakHeap = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                    peakHeap += pool.getPeakUsage().getUsed();
+                }
+            }
+            long pause = pauseMs - before.pauseMs;
+            Map<String, Object> gc = new LinkedHashMap<>();
+            gc.put("collections", collections - before.collections);
+            gc.put("collection_time_ms", pause);
+            gc.put("collection_time_ratio", round(pause / (elapsedNanos / 1e6)));
+            gc.put("peak_heap_bytes", peakHeap);
+            return gc;
+        }
+    }
+
+    /**
+     * Harness arguments; any other key containing a dot is passed to the application as a property
+     */
+    private static final class Config {
+
+        int messages = 100_000;
+        int warmup = 5_000;
+        int rate = 0;
+        int partitions = 6;
+        int concurrency = 6;
+        String mix = "small-log:70,many-services:15,drift-storm:10,large:5";
+        int services = 500;
+        int largeBytes = 64 * 1024;
+        long seed = 42;
+        String mode = "record";
+        String outputFormat = "json";
+        String storage = "text";
+        String dbUrl;
+        String dbUser = "postgres";
+        String dbPassword = "";
+        Duration timeout = Duration.ofMinutes(10);
+        String report = "target/loadtest-report.json";
+        final Map<String, Object> overrides = new LinkedHashMap<>();
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Expected key=value, got: " + arg);
+                }
+                String key = arg.substring(0, eq);
+                String value = arg.substring(eq + 1);
+                switch (key) {
+                    case "messages" -> config.messages = Integer.parseInt(value);
+                    case "warmup" -> config.warmup = Integer.parseInt(value);
+                    case "rate" -> config.rate = Integer.parseInt(value);
+                    case "partitions" -> config.partitions = Integer.parseInt(value);
+                    case "concurrency" -> config.concurrency = Integer.parseInt(value);
+                    case "mix" -> config.mix = value;
+                    case "services" -> config.services = Integer.parseInt(value);
+                    case "large-bytes" -> config.largeBytes = Integer.parseInt(value);
+                    case "seed" -> config.seed = Long.parseLong(value);
+                    case "mode" -> config.mode = value;
+                    case "output" -> config.outputFormat = value;
+                    case "storage" -> config.storage = value;
+                    case "db-url" -> config.dbUrl = value;
+                    case "db-user" -> config.dbUser = value;
+                    case "db-password" -> config.dbPassword = value;
+                    case "timeout-s" -> config.timeout = Duration.ofSeconds(Long.parseLong(value));
+                    case "report" -> config.report = value;
+                    default -> {
+                        if (!key.contains(".")) {
+                            throw new IllegalArgumentException("Unknown argument: " + key);
+                        }
+                        config.overrides.put(key, value);
+                    }
+                }
+            }
+            return config;
+        }
+
+        Map<String, Object> asMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("messages", messages);
+            map.put("warmup", warmup);
+            map.put("rate", rate);
+            map.put("partitions", partitions);
+            map.put("concurrency", concurrency);
+            map.put("mix", mix);
+            map.put("services", services);
+            map.put("large_bytes", largeBytes);
+            map.put("seed", seed);
+            map.put("mode", mode);
+            map.put("output", outputFormat);
+            map.put("storage", storage);
+            map.put("database", dbUrl != null ? "external" : "embedded");
+            map.put("overrides", overrides);
+            return map;
+        }
+
+        String describe() {
+            return asMap().toString();
+        }
+    }
+}
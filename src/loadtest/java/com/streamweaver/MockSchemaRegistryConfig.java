@@ -0,0 +1,23 @@
+package com.streamweaver;
+
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.testutil.MockSchemaRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * In-memory schema registry for the load test, so Avro output runs without a registry
+ * server. Active only under the mock-registry profile, which replaces KafkaConfig's client.
+ */
+@Configuration
+@Profile(MockSchemaRegistryConfig.PROFILE)
+public class MockSchemaRegistryConfig {
+
+    public static final String PROFILE = "mock-registry";
+
+    @Bean
+    public SchemaRegistryClient schemaRegistryClient() {
+        return MockSchemaRegistry.getClientForScope("loadtest");
+    }
+}
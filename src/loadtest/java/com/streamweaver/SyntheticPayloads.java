@@ -0,0 +1,150 @@
+package com.streamweaver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Weighted payload mixes for the load test.
+ *
+ * small-log: a typical application log line from a handful of services.
+ * many-services: log lines spread over a configurable number of distinct services.
+ * drift-storm: every payload carries a different field set, so each one registers a schema version.
+ * large: a log line with a nested context and a large message body.
+ *
+ * Payloads are generated up front as templates; the harness prepends its sequence
+ * number and send timestamp when the record is produced.
+ */
+final class SyntheticPayloads {
+
+    static final String SMALL_LOG = "small-log";
+    static final String MANY_SERVICES = "many-services";
+    static final String DRIFT_STORM = "drift-storm";
+    static final String LARGE = "large";
+
+    private static final int TEMPLATES_PER_KIND = 4096;
+    private static final String[] SERVICES = {"checkout-api", "payment-service", "inventory", "auth-gateway"};
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "WARN", "ERROR", "DEBUG"};
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Random random;
+    private final int services;
+    private final int largeBytes;
+    private final List<String> kinds = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private final Map<String, List<Template>> templates = new LinkedHashMap<>();
+    private int totalWeight;
+
+    /**
+     * mix is a comma-separated list of kind:weight, e.g. "small-log:70,drift-storm:30"
+     */
+    SyntheticPayloads(String mix, int services, int largeBytes, long seed) {
+        this.random = new Random(seed);
+        this.services = services;
+        this.largeBytes = largeBytes;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            String kind = parts[0];
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            if (weight <= 0) {
+                continue;
+            }
+            totalWeight += weight;
+            kinds.add(kind);
+            cumulativeWeights.add(totalWeight);
+            templates.put(kind, generate(kind));
+        }
+        if (kinds.isEmpty()) {
+            throw new IllegalArgumentException("Empty payload mix: " + mix);
+        }
+    }
+
+    /**
+     * Next template, drawn according to the mix weights
+     */
+    Template next() {
+        int draw = random.nextInt(totalWeight);
+        int k = 0;
+        while (draw >= cumulativeWeights.get(k)) {
+            k++;
+        }
+        List<Template> pool = templates.get(kinds.get(k));
+        return pool.get(random.nextInt(pool.size()));
+    }
+
+    /**
+     * JSON body of a payload without its opening brace, and the service it belongs to
+     */
+    record Template(String service, String body) {
+
+        String render(long seq, long sentNanos) {
+            return "{\"lt_seq\":" + seq + ",\"lt_sent_ns\":" + sentNanos + "," + body;
+        }
+    }
+
+    private List<Template> generate(String kind) {
+        List<Template> pool = new ArrayList<>(TEMPLATES_PER_KIND);
+        for (int i = 0; i < TEMPLATES_PER_KIND; i++) {
+            Map<String, Object> payload = switch (kind) {
+                case SMALL_LOG -> smallLog(SERVICES[random.nextInt(SERVICES.length)], i);
+                case MANY_SERVICES -> smallLog("svc-" + random.nextInt(services), i);
+                case DRIFT_STORM -> driftStorm(i);
+                case LARGE -> large(i);
+                default -> throw new IllegalArgumentException("Unknown payload kind: " + kind);
+            };
+            try {
+                String json = MAPPER.writeValueAsString(payload);
+                pool.add(new Template((String) payload.get("service"), json.substring(1)));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return pool;
+    }
+
+    private Map<String, Object> smallLog(String service, int i) {
+        Map<String, Object> log = new LinkedHashMap<>();
+        log.put("timestamp", Instant.ofEpochMilli(1_700_000_000_000L + i * 37L).toString());
+        log.put("service", service);
+        log.put("level", LEVELS[random.nextInt(LEVELS.length)]);
+        log.put("message", "Request " + i + " completed with status " + (200 + random.nextInt(4) * 100));
+        log.put("trace_id", Long.toHexString(random.nextLong()));
+        log.put("duration_ms", random.nextInt(2_000));
+        return log;
+    }
+
+    // A different subset of optional fields per template, under the same few subjects
+    private Map<String, Object> driftStorm(int i) {
+        Map<String, Object> event = smallLog(SERVICES[i % SERVICES.length], i);
+        int fields = 1 + random.nextInt(12);
+        for (int f = 0; f < fields; f++) {
+            int field = random.nextInt(64);
+            switch (field % 3) {
+                case 0 -> event.put("attr_" + field, "v" + random.nextInt(100));
+                case 1 -> event.put("metric_" + field, random.nextDouble());
+                default -> event.put("tags_" + field, List.of("a", "b"));
+            }
+        }
+        return event;
+    }
+
+    private Map<String, Object> large(int i) {
+        Map<String, Object> event = smallLog(SERVICES[random.nextInt(SERVICES.length)], i);
+        Map<String, Object> context = new LinkedHashMap<>();
+        context.put("host", "node-" + random.nextInt(64));
+        context.put("thread", "worker-" + random.nextInt(32));
+        context.put("headers", Map.of("user-agent", "loadtest", "accept", "application/json"));
+        event.put("context", context);
+        StringBuilder body = new StringBuilder(largeBytes);
+        while (body.length() < largeBytes) {
+            body.append("at com.example.Service.handle(Service.java:").append(random.nextInt(1000)).append(") ");
+        }
+        event.put("stack_trace", body.substring(0, largeBytes));
+        return event;
+    }
+}
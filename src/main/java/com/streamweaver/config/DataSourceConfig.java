@@ -0,0 +1,67 @@
+package com.streamweaver.config;
+
+import com.streamweaver.repository.ReadRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Ingest and REST reads use separate Hikari pools behind one routing DataSource, so a
+ * heavy dashboard query cannot take connections from the consumers. The read pool
+ * defaults to the primary database and can point at a replica.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("streamweaver.datasource.read.hikari")
+    public HikariDataSource readDataSource(DataSourceProperties properties,
+                                           @Value("${streamweaver.datasource.read.url:}") String url,
+                                           @Value("${streamweaver.datasource.read.username:}") String username,
+                                           @Value("${streamweaver.datasource.read.password:}") String password) {
+        DataSourceBuilder<HikariDataSource> builder = properties.initializeDataSourceBuilder().type(HikariDataSource.class);
+        if (!url.isBlank()) {
+            builder.url(url);
+        }
+        if (!username.isBlank()) {
+            builder.username(username);
+            builder.password(password);
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") DataSource writeDataSource,
+                                 @Qualifier("readDataSource") DataSource readDataSource) {
+        return new ReadRoutingDataSource(writeDataSource, readDataSource);
+    }
+
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+
+    @Bean(ReadRoutingDataSource.READ_TRANSACTION_MANAGER)
+    public PlatformTransactionManager readTransactionManager(EntityManagerFactory entityManagerFactory) {
+        return new ReadRoutingDataSource.ReadPoolTransactionManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,377 @@
+package com.streamweaver.config;
+
+import com.streamweaver.service.IngestMetrics;
+import com.streamweaver.service.OffsetTracker;
+import com.streamweaver.service.PersistFailures;
+import com.streamweaver.service.ProcessedOffsets;
+import com.streamweaver.service.RecentMessageIndex;
+import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.backoff.ExponentialBackOff;
+import org.springframework.util.backoff.FixedBackOff;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Configuration
+public class KafkaConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${streamweaver.consumer.concurrency:1}")
+    private int consumerConcurrency;
+
+    @Value("${streamweaver.consumer.max-poll-interval-ms:300000}")
+    private int maxPollIntervalMs;
+
+    @Value("${streamweaver.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${streamweaver.consumer.pipelined.persist-threads:8}")
+    private int persistThreads;
+
+    @Value("${streamweaver.consumer.batch.max-size:500}")
+    private int batchMaxSize;
+
+    @Value("${streamweaver.consumer.batch.max-wait-ms:500}")
+    private int batchMaxWaitMs;
+
+    @Value("${streamweaver.consumer.batch.min-bytes:65536}")
+    private int batchMinBytes;
+
+    @Value("${streamweaver.consumer.batch.retry-backoff-ms:1000}")
+    private long batchRetryBackoffMs;
+
+    @Value("${streamweaver.consumer.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${streamweaver.consumer.max-retry-backoff-ms:30000}")
+    private long maxRetryBackoffMs;
+
+    @Value("${schema.registry.url}")
+    private String schemaRegistryUrl;
+
+    @Value("${streamweaver.output.avro.schema-cache-capacity:1000}")
+    private int avroSchemaCacheCapacity;
+
+    @Value("${streamweaver.consumer.keyed.commit-interval-ms:1000}")
+    private long keyedCommitIntervalMs;
+
+    @Value("${streamweaver.consumer.pipelined.commit-interval-ms:1000}")
+    private long pipelinedCommitIntervalMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OffsetTracker offsetTracker;
+
+    @Autowired
+    private ProcessedOffsets processedOffsets;
+
+    @Autowired
+    private RecentMessageIndex recentMessageIndex;
+
+    @Autowired
+    private IngestMetrics ingestMetrics;
+
+    @Bean
+    public ProducerFactory<String, String> producerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return instrumented(new DefaultKafkaProducerFactory<String, String>(config));
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+
+    @Bean
+    public ConsumerFactory<String, String> consumerFactory() {
+        return instrumented(new DefaultKafkaConsumerFactory<String, String>(baseConsumerConfig()));
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, String>>
+           kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        applyThreading(factory);
+        factory.setCommonErrorHandler(retryUntilStored());
+        return factory;
+    }
+
+    // Batch mode: one poll per listener call, offsets committed after the listener returns
+    @Bean
+    public ConsumerFactory<String, String> batchConsumerFactory() {
+        Map<String, Object> config = baseConsumerConfig();
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxSize);
+        config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchMinBytes);
+        config.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchMaxWaitMs);
+        return instrumented(new DefaultKafkaConsumerFactory<String, String>(config));
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, String>>
+           batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        applyThreading(factory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        // The listener dead-letters rows that fail permanently and only throws on transient
+        // failures or failed forwards, so a failed poll is retried until it is stored and
+        // forwarded; the default recoverer would skip and commit it
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+            new FixedBackOff(batchRetryBackoffMs, FixedBackOff.UNLIMITED_ATTEMPTS)));
+        return factory;
+    }
+
+    // Bytes mode: raw payload bytes in, envelope bytes out, no String decoding on the forward path
+    @Bean
+    public ProducerFactory<String, byte[]> byteArrayProducerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        return instrumented(new DefaultKafkaProducerFactory<String, byte[]>(config));
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> byteArrayKafkaTemplate() {
+        return new KafkaTemplate<>(byteArrayProducerFactory());
+    }
+
+    @Bean
+    public ConsumerFactory<String, byte[]> byteArrayConsumerFactory() {
+        Map<String, Object> config = baseConsumerConfig();
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        return instrumented(new DefaultKafkaConsumerFactory<String, byte[]>(config));
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, byte[]>>
+           byteArrayKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(byteArrayConsumerFactory());
+        applyThreading(factory);
+        factory.setCommonErrorHandler(retryUntilStored());
+        return factory;
+    }
+
+    // Pipelined mode: records complete in persist/send callbacks, possibly out of order, and
+    // like keyed mode the listener commits up to the highest contiguous completed offset
+    @Bean
+    public ConsumerFactory<String, String> pipelinedConsumerFactory() {
+        Map<String, Object> config = baseConsumerConfig();
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return instrumented(new DefaultKafkaConsumerFactory<String, String>(config));
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, String>>
+           pipelinedKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(pipelinedConsumerFactory());
+        applyThreading(factory);
+        // MANUAL without acks: the container never commits, the listener does. Async acks
+        // would pause the consumer until every record of a poll is acknowledged, so a
+        // record sought back for redelivery could never be polled again.
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(pipelinedCommitIntervalMs);
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener(true));
+        return factory;
+    }
+
+    // Keyed mode: one poll per listener call fanned out to KeyOrderedExecutor lanes, offsets
+    // committed by the listener up to the highest contiguous completed offset per partition
+    @Bean
+    public ConsumerFactory<String, String> keyedConsumerFactory() {
+        Map<String, Object> config = baseConsumerConfig();
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return instrumented(new DefaultKafkaConsumerFactory<String, String>(config));
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, String>>
+           keyedKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(keyedConsumerFactory());
+        applyThreading(factory);
+        factory.setBatchListener(true);
+        // MANUAL without acks: the container never commits, the listener does
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(keyedCommitIntervalMs);
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener(true));
+        return factory;
+    }
+
+    // Avro output mode; the load test supplies an in-memory registry under the mock-registry profile
+    @Bean
+    @Profile("!mock-registry")
+    public SchemaRegistryClient schemaRegistryClient() {
+        return new CachedSchemaRegistryClient(schemaRegistryUrl, avroSchemaCacheCapacity);
+    }
+
+    @Bean
+    public AsyncTaskExecutor persistExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(persistThreads);
+        executor.setMaxPoolSize(persistThreads);
+        executor.setThreadNamePrefix("sw-persist-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Seeds ProcessedOffsets for newly assigned partitions, so records redelivered from
+     * the committed position are skipped, and tells RecentMessageIndex which partitions
+     * this instance owns; keyed and pipelined modes also commit completed offsets of revoked
+     * partitions first
+     */
+    private ConsumerAwareRebalanceListener rebalanceListener(boolean commitTracked) {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                if (commitTracked) {
+                    Map<TopicPartition, OffsetAndMetadata> commits = offsetTracker.committable(partitions);
+                    if (!commits.isEmpty()) {
+                        consumer.commitSync(commits);
+                    }
+                    offsetTracker.revoke(partitions);
+                }
+            }
+
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                processedOffsets.forget(partitions);
+                recentMessageIndex.revoked(partitions);
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                ConsumerAwareRebalanceListener.super.onPartitionsLost(consumer, partitions);
+                recentMessageIndex.revoked(partitions);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                for (TopicPartition partition : partitions) {
+                    processedOffsets.seed(partition, consumer.position(partition));
+                }
+                partitions.stream()
+                    .collect(Collectors.groupingBy(TopicPartition::topic))
+                    .forEach((topic, assigned) ->
+                        recentMessageIndex.assigned(assigned, topic, consumer.partitionsFor(topic).size()));
+            }
+        };
+    }
+
+    /**
+     * Publishes records whose row can never be stored to their topic's dead-letter topic,
+     * raw-data.DLT, with the failure in the headers. Kafka picks the partition, so the
+     * dead-letter topic may have fewer partitions than raw-data. String and byte[] values
+     * are sent through the matching template.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer() {
+        Map<Class<?>, KafkaOperations<? extends Object, ? extends Object>> templates = new LinkedHashMap<>();
+        templates.put(String.class, kafkaTemplate());
+        templates.put(byte[].class, byteArrayKafkaTemplate());
+        return new DeadLetterPublishingRecoverer(templates,
+            (record, ex) -> new TopicPartition(record.topic() + PersistFailures.DEAD_LETTER_SUFFIX, -1));
+    }
+
+    /**
+     * Record and bytes modes rethrow only rows that reached neither Postgres nor the spill
+     * log. Transient failures are sought back and retried, backing off up to
+     * max-retry-backoff-ms, without ever being skipped. A row that fails permanently is
+     * not retried: the record goes to the dead-letter topic and its offset is committed.
+     * If that publish fails, the record is retried rather than skipped.
+     */
+    private DefaultErrorHandler retryUntilStored() {
+        ExponentialBackOff backOff = new ExponentialBackOff(retryBackoffMs, 2.0);
+        backOff.setMaxInterval(maxRetryBackoffMs);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler((record, ex) -> {
+            deadLetterPublishingRecoverer().accept(record, ex);
+            ingestMetrics.deadLettered(record.topic());
+        }, backOff);
+        errorHandler.addNotRetryableExceptions(PersistFailures.Permanent.class);
+        return errorHandler;
+    }
+
+    private void applyThreading(ConcurrentKafkaListenerContainerFactory<?, ?> factory) {
+        factory.setConcurrency(consumerConcurrency);
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener(false));
+    }
+
+    // Kafka client metrics on the actuator registry, including per-partition records-lag
+    private <V> ConsumerFactory<String, V> instrumented(DefaultKafkaConsumerFactory<String, V> factory) {
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+
+    private <V> ProducerFactory<String, V> instrumented(DefaultKafkaProducerFactory<String, V> factory) {
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
+    }
+
+    private Map<String, Object> baseConsumerConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, "streamweaver-group");
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // ConcurrencyController lowers max.poll.records of blocking listeners against these two
+        config.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, maxPollIntervalMs);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        return config;
+    }
+}
@@ -0,0 +1,251 @@
+package com.streamweaver.controller;
+
+import com.streamweaver.entity.MessageMetadata;
+import com.streamweaver.entity.SchemaVersion;
+import com.streamweaver.repository.MessageMetadataRepository;
+import com.streamweaver.repository.SchemaVersionRepository;
+import com.streamweaver.service.MessageQuery;
+import com.streamweaver.service.MessageQueryService;
+import com.streamweaver.service.MessageSummary;
+import com.streamweaver.service.SchemaRegistryService;
+import com.streamweaver.service.TopicStatsService;
+import lombok.extern.slf4j.Slf4j;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@Slf4j
+public class StreamWeaverController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String SERVED_FROM_HEADER = "X-Served-From";
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Autowired
+    private MessageMetadataRepository messageMetadataRepository;
+    
+    @Autowired
+    private SchemaVersionRepository schemaVersionRepository;
+    
+    @Autowired
+    private SchemaRegistryService schemaRegistryService;
+    
+    @Autowired
+    private MessageQueryService messageQueryService;
+    
+    @Autowired
+    private TopicStatsService topicStatsService;
+
+    @GetMapping("/health")
+    public Map<String, Object> health() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("application", "StreamWeaver");
+        response.put("timestamp", Instant.now().toString());
+        response.put("features", Map.of(
+            "postgresql", "ACTIVE",
+            "schema_registry", "ACTIVE",
+            "kafka", "ACTIVE"
+        ));
+        return response;
+    }
+
+    @PostMapping("/produce")
+    public Map<String, String> produceMessage(@RequestBody String message) {
+        try {
+            kafkaTemplate.send("raw-data", message);
+            log.debug("📤 Message sent to raw-data topic ({} chars)", message.length());
+            
+            Map<String, String> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("message", "Data sent to Kafka");
+            response.put("topic", "raw-data");
+            return response;
+            
+        } catch (Exception e) {
+            log.error("❌ Error sending message: {}", e.getMessage(), e);
+            Map<String, String> response = new HashMap<>();
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return response;
+        }
+    }
+    
+    // ============== PostgreSQL Endpoints ==============
+    
+    @GetMapping("/api/messages")
+    public ResponseEntity<List<MessageSummary>> getAllMessages(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        return page(MessageQuery.builder()
+            .afterId(afterId).limit(limit).from(from).to(to).build());
+    }
+    
+    @GetMapping("/api/messages/topic/{topic}")
+    public ResponseEntity<List<MessageSummary>> getMessagesByTopic(
+            @PathVariable String topic,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        return page(MessageQuery.builder().topic(topic)
+            .afterId(afterId).limit(limit).from(from).to(to).build());
+    }
+    
+    /**
+     * Without a cursor or an upper bound, the newest rows are served like /api/messages/recent;
+     * afterId or to pages the table by id instead
+     */
+    @GetMapping("/api/messages/service/{service}")
+    public ResponseEntity<List<MessageSummary>> getMessagesByService(
+            @PathVariable String service,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        if (afterId == null && to == null) {
+            return recent(messageQueryService.recent(null, service, null, from, limit));
+        }
+        return page(MessageQuery.builder().serviceName(service)
+            .afterId(afterId).limit(limit).from(from).to(to).build());
+    }
+    
+    /**
+     * Same routing as the service lookup
+     */
+    @GetMapping("/api/messages/level/{level}")
+    public ResponseEntity<List<MessageSummary>> getMessagesByLevel(
+            @PathVariable String level,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        if (afterId == null && to == null) {
+            return recent(messageQueryService.recent(null, null, level, from, limit));
+        }
+        return page(MessageQuery.builder().logLevel(level)
+            .afterId(afterId).limit(limit).from(from).to(to).build());
+    }
+    
+    // List endpoints return summaries; payloads are only served here
+    @GetMapping("/api/messages/{id:\\d+}")
+    public ResponseEntity<MessageMetadata> getMessage(@PathVariable long id) {
+        return ResponseEntity.of(messageQueryService.findById(id));
+    }
+    
+    /**
+     * Newest-first summaries without payloads, from the in-memory index where it covers the range
+     */
+    @GetMapping("/api/messages/recent")
+    public ResponseEntity<List<MessageSummary>> getRecentMessages(
+            @RequestParam(required = false) String topic,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) Instant since,
+            @RequestParam(required = false) Integer limit) {
+        return recent(messageQueryService.recent(topic, service, level, since, limit));
+    }
+    
+    // ============== Streaming (NDJSON) Endpoints ==============
+    
+    @GetMapping(value = "/api/messages/stream", produces = NDJSON)
+    public void streamAllMessages(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            HttpServletResponse response) throws IOException {
+        stream(MessageQuery.builder().afterId(afterId).from(from).to(to).build(), response);
+    }
+    
+    @GetMapping(value = "/api/messages/topic/{topic}/stream", produces = NDJSON)
+    public void streamMessagesByTopic(
+            @PathVariable String topic,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            HttpServletResponse response) throws IOException {
+        stream(MessageQuery.builder().topic(topic).afterId(afterId).from(from).to(to).build(), response);
+    }
+    
+    @GetMapping(value = "/api/messages/service/{service}/stream", produces = NDJSON)
+    public void streamMessagesByService(
+            @PathVariable String service,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            HttpServletResponse response) throws IOException {
+        stream(MessageQuery.builder().serviceName(service).afterId(afterId).from(from).to(to).build(), response);
+    }
+    
+    @GetMapping(value = "/api/messages/level/{level}/stream", produces = NDJSON)
+    public void streamMessagesByLevel(
+            @PathVariable String level,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            HttpServletResponse response) throws IOException {
+        stream(MessageQuery.builder().logLevel(level).afterId(afterId).from(from).to(to).build(), response);
+    }
+    
+    private ResponseEntity<List<MessageSummary>> page(MessageQuery query) {
+        MessageQueryService.MessagePage page = messageQueryService.page(query);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getMessages());
+    }
+    
+    private ResponseEntity<List<MessageSummary>> recent(MessageQueryService.RecentMessages recent) {
+        return ResponseEntity.ok()
+            .header(SERVED_FROM_HEADER, recent.getServedFrom())
+            .body(recent.getMessages());
+    }
+    
+    private void stream(MessageQuery query, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        long written = messageQueryService.streamNdjson(query, response.getOutputStream());
+        log.debug("Streamed {} messages", written);
+    }
+    
+    @GetMapping("/api/stats/topic/{topic}")
+    public Map<String, Object> getTopicStats(@PathVariable String topic) {
+        return topicStatsService.getTopicStats(topic);
+    }
+    
+    // ============== Schema Registry Endpoints ==============
+    
+    @GetMapping("/api/schemas")
+    public List<SchemaVersion> getAllSchemas() {
+        return schemaVersionRepository.findAll();
+    }
+    
+    @GetMapping("/api/schemas/subject/{subject}")
+    public List<SchemaVersion> getSchemasBySubject(@PathVariable String subject) {
+        return schemaVersionRepository.findBySubject(subject);
+    }
+    
+    @GetMapping("/api/schemas/active")
+    public List<SchemaVersion> getActiveSchemas() {
+        return schemaVersionRepository.findByIsActive(true);
+    }
+    
+    @GetMapping("/api/schemas/registry/subjects")
+    public List<String> getRegistrySubjects() {
+        return schemaRegistryService.getAllSubjects();
+    }
+}
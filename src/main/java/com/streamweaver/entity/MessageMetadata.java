@@ -1,18 +1,32 @@
 package com.streamweaver.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.streamweaver.service.NormalizedEnvelopeWriter;
+import com.streamweaver.service.PayloadCodec;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.Instant;
 
+/**
+ * One consumed record. The table is range-partitioned by created_at; its schema is
+ * owned by the Flyway migrations in db/migration, the mapping below only mirrors it.
+ * Offsets are unique per partition, through an index PartitionManager creates with
+ * each partition, so there is no table-wide unique constraint to declare.
+ */
 @Entity
 @Table(name = "message_metadata", indexes = {
     @Index(name = "idx_topic", columnList = "topic"),
     @Index(name = "idx_created_at", columnList = "created_at"),
-    @Index(name = "idx_service_name", columnList = "service_name")
+    // Filter then time range, for list pages and recent queries; also serve plain equality lookups
+    @Index(name = "idx_service_created_at", columnList = "service_name, created_at"),
+    @Index(name = "idx_level_created_at", columnList = "log_level, created_at"),
+    @Index(name = "idx_payload_hash", columnList = "payload_hash")
 })
 @Data
 @Builder
@@ -42,6 +56,30 @@ public class MessageMetadata {
     @Column(name = "normalized_message", columnDefinition = "TEXT")
     private String normalizedMessage;
     
+    /**
+     * Compressed raw payload (PayloadCodec) in compressed storage mode; raw_message
+     * and normalized_message are then left null and rebuilt on read
+     */
+    @Column(name = "payload", columnDefinition = "bytea")
+    @JsonIgnore
+    @ToString.Exclude
+    private byte[] payload;
+    
+    /**
+     * Key into message_payload when identical payloads are stored once
+     */
+    @Column(name = "payload_hash", length = 64)
+    @JsonIgnore
+    private String payloadHash;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "payload_hash", referencedColumnName = "hash", insertable = false, updatable = false,
+                foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private MessagePayload sharedPayload;
+    
     @Column(name = "service_name")
     private String serviceName;
     
@@ -66,8 +104,48 @@ public class MessageMetadata {
     @Column(name = "created_by")
     private String createdBy;
     
+    /**
+     * Structural hash of the payload computed at ingest; used for Avro output, never stored or serialized
+     */
+    @Transient
+    @JsonIgnore
+    private Long structureHash;
+    
+    /**
+     * Kafka record timestamp in epoch millis; event time for windowed aggregates, never stored or serialized
+     */
+    @Transient
+    @JsonIgnore
+    private Long eventTime;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = Instant.now();
     }
+    
+    /**
+     * Raw payload, decompressed on access for rows written in compressed storage mode
+     */
+    public String getRawMessage() {
+        if (rawMessage != null) {
+            return rawMessage;
+        }
+        if (payload != null) {
+            return PayloadCodec.decompressToString(payload);
+        }
+        if (sharedPayload != null) {
+            return PayloadCodec.decompressToString(sharedPayload.getPayload());
+        }
+        return null;
+    }
+    
+    /**
+     * Normalized envelope, rebuilt from the raw payload and processedAt for compressed rows
+     */
+    public String getNormalizedMessage() {
+        if (normalizedMessage != null || (payload == null && sharedPayload == null)) {
+            return normalizedMessage;
+        }
+        return NormalizedEnvelopeWriter.toJson(getRawMessage(), processedAt);
+    }
 }
@@ -0,0 +1,35 @@
+package com.streamweaver.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+
+import java.time.Instant;
+
+/**
+ * A deduplicated, compressed raw payload shared by every message_metadata row with
+ * the same content (compressed storage mode with dedup enabled)
+ */
+@Entity
+@Table(name = "message_payload")
+@BatchSize(size = 256)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePayload {
+
+    /** Hex SHA-256 of the uncompressed payload */
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
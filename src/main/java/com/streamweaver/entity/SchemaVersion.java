@@ -12,6 +12,8 @@ import java.time.Instant;
 @Table(name = "schema_versions", indexes = {
     @Index(name = "idx_subject", columnList = "subject"),
     @Index(name = "idx_version", columnList = "version")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_schema_subject_version", columnNames = {"subject", "version"})
 })
 @Data
 @Builder
@@ -0,0 +1,39 @@
+package com.streamweaver.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "topic_service_stats", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_topic_service_stats", columnNames = {"topic", "service_name"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopicServiceStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "service_name", nullable = false)
+    private String serviceName;
+
+    @Column(name = "message_count", nullable = false)
+    private Long messageCount;
+
+    @Column(name = "total_processing_time_ms", nullable = false)
+    private Long totalProcessingTimeMs;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
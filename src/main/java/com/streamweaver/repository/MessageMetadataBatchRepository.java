@@ -0,0 +1,267 @@
+package com.streamweaver.repository;
+
+import com.streamweaver.entity.MessageMetadata;
+import com.streamweaver.service.PayloadStorage;
+import com.streamweaver.service.PayloadStorage.StoredPayload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC bulk insert path for {@link MessageMetadata}.
+ *
+ * The entity uses an IDENTITY id, which stops Hibernate from batching inserts,
+ * so batches are written here as multi-row INSERTs of up to max-size rows. Each
+ * returns the offsets it actually inserted: the update counts of a JDBC batch cannot
+ * tell, as the driver reports SUCCESS_NO_INFO for every row once reWriteBatchedInserts
+ * has rewritten it.
+ *
+ * In compressed storage mode the raw payload is written once as a compressed blob
+ * (or a message_payload reference) and the TEXT columns are left null.
+ *
+ * Every insert skips rows whose (topic, partition_number, offset_value) is already
+ * stored, so replayed records never produce duplicate rows. message_metadata is
+ * partitioned by created_at, so no index on it is unique across partitions; each
+ * statement first claims its offsets in the unpartitioned message_offsets table and
+ * only inserts the rows whose claim succeeded, which also holds for a redelivery
+ * stored into a later partition than the original.
+ */
+@Repository
+public class MessageMetadataBatchRepository {
+
+    private static final int COLUMNS = 14;
+
+    // The protocol allows at most 32767 bind parameters per statement
+    private static final int MAX_STATEMENT_ROWS = Short.MAX_VALUE / COLUMNS;
+
+    private static final String ROW_VALUES = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String PLAIN_COLUMNS =
+        "message_key, topic, partition_number, offset_value, " +
+        "raw_message, normalized_message, service_name, log_level, schema_version, schema_id, " +
+        "processing_time_ms, created_at, processed_at, created_by";
+
+    private static final String COMPRESSED_COLUMNS =
+        "message_key, topic, partition_number, offset_value, " +
+        "payload, payload_hash, service_name, log_level, schema_version, schema_id, " +
+        "processing_time_ms, created_at, processed_at, created_by";
+
+    private static final String RETURNING = " RETURNING id, topic, partition_number, offset_value";
+
+    private static final String INSERT_SQL = insertSql(PLAIN_COLUMNS, 1);
+
+    private static final String INSERT_COMPRESSED_SQL = insertSql(COMPRESSED_COLUMNS, 1);
+
+    // created_at is the payload's last use, refreshed at most hourly; PartitionManager
+    // deletes unreferenced payloads by it, and the row lock taken here keeps a payload
+    // that is being reused from being deleted
+    private static final String INSERT_PAYLOAD_SQL =
+        "INSERT INTO message_payload (hash, payload, created_at) VALUES (?, ?, ?) " +
+        "ON CONFLICT (hash) DO UPDATE SET created_at = EXCLUDED.created_at " +
+        "WHERE message_payload.created_at < EXCLUDED.created_at - INTERVAL '1 hour'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PayloadStorage payloadStorage;
+
+    @Value("${streamweaver.consumer.batch.max-size:500}")
+    private int jdbcBatchSize;
+
+    /**
+     * Insert all messages in one transaction; either every new row is durable or none is.
+     * Rows already stored for the same offset are skipped. Returns the messages that
+     * were inserted, in their original order, with their generated ids set.
+     */
+    @Transactional
+    public List<MessageMetadata> insertAll(List<MessageMetadata> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+
+        Instant now = Instant.now();
+        for (MessageMetadata message : messages) {
+            if (message.getCreatedAt() == null) {
+                message.setCreatedAt(now);
+            }
+        }
+
+        if (!payloadStorage.isCompressed()) {
+            List<StoredRow> rows = new ArrayList<>(messages.size());
+            for (MessageMetadata message : messages) {
+                rows.add(new StoredRow(message, null));
+            }
+            return insertReturning(PLAIN_COLUMNS, rows);
+        }
+
+        List<StoredRow> rows = new ArrayList<>(messages.size());
+        Map<String, StoredPayload> shared = new LinkedHashMap<>();
+        for (MessageMetadata message : messages) {
+            StoredPayload stored = payloadStorage.store(message.getRawMessage());
+            if (stored.isShared()) {
+                shared.putIfAbsent(stored.hash(), stored);
+            }
+            rows.add(new StoredRow(message, stored));
+        }
+        if (!shared.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PAYLOAD_SQL, shared.values(), jdbcBatchSize,
+                (ps, stored) -> bindPayload(ps, stored, now));
+        }
+        return insertReturning(COMPRESSED_COLUMNS, rows);
+    }
+
+    /**
+     * Insert rows with one multi-row statement per max-size rows, and collect the
+     * rows whose offsets the statements returned
+     */
+    private List<MessageMetadata> insertReturning(String columns, List<StoredRow> rows) {
+        Map<OffsetKey, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            MessageMetadata m = rows.get(i).message();
+            indexes.put(new OffsetKey(m.getTopic(), m.getPartition(), m.getOffset()), i);
+        }
+
+        int statementRows = Math.min(jdbcBatchSize, MAX_STATEMENT_ROWS);
+        boolean[] inserted = new boolean[rows.size()];
+        for (int from = 0; from < rows.size(); from += statementRows) {
+            List<StoredRow> chunk = rows.subList(from, Math.min(rows.size(), from + statementRows));
+            String sql = insertSql(columns, chunk.size()) + RETURNING;
+            jdbcTemplate.query(sql, ps -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    StoredRow row = chunk.get(i);
+                    if (row.stored() == null) {
+                        bind(ps, i * COLUMNS, row.message());
+                    } else {
+                        bindCompressed(ps, i * COLUMNS, row.message(), row.stored());
+                    }
+                }
+            }, (RowCallbackHandler) rs -> {
+                int index = indexes.get(new OffsetKey(rs.getString(2), rs.getInt(3), rs.getLong(4)));
+                rows.get(index).message().setId(rs.getLong(1));
+                inserted[index] = true;
+            });
+        }
+
+        List<MessageMetadata> insertedRows = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            if (inserted[i]) {
+                insertedRows.add(rows.get(i).message());
+            }
+        }
+        return insertedRows;
+    }
+
+    /**
+     * Insert one message, setting its generated id; null if a row for its offset already exists
+     */
+    @Transactional
+    public MessageMetadata insert(MessageMetadata message) {
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(Instant.now());
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        if (!payloadStorage.isCompressed()) {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
+                bind(ps, 0, message);
+                return ps;
+            }, keyHolder);
+        } else {
+            StoredPayload stored = payloadStorage.store(message.getRawMessage());
+            if (stored.isShared()) {
+                jdbcTemplate.update(INSERT_PAYLOAD_SQL, ps -> bindPayload(ps, stored, message.getCreatedAt()));
+            }
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_COMPRESSED_SQL, new String[]{"id"});
+                bindCompressed(ps, 0, message, stored);
+                return ps;
+            }, keyHolder);
+        }
+
+        Number id = keyHolder.getKey();
+        if (id == null) {
+            return null;
+        }
+        message.setId(id.longValue());
+        return message;
+    }
+
+    /**
+     * Insert rows VALUES rows into message_metadata. Their offsets are claimed in
+     * message_offsets first, and a row is only inserted if its claim succeeded, once
+     * per offset. ON CONFLICT still skips a row the partition's own offset index holds.
+     */
+    private static String insertSql(String columns, int rows) {
+        return "WITH row_values (" + columns + ") AS (VALUES " +
+               String.join(", ", Collections.nCopies(rows, ROW_VALUES)) + "), " +
+               "claimed AS (INSERT INTO message_offsets (topic, partition_number, offset_value, created_at) " +
+               "SELECT topic, partition_number, offset_value, created_at FROM row_values " +
+               "ON CONFLICT DO NOTHING RETURNING topic, partition_number, offset_value) " +
+               "INSERT INTO message_metadata (" + columns + ") " +
+               "SELECT DISTINCT ON (topic, partition_number, offset_value) r.* FROM row_values r " +
+               "JOIN claimed USING (topic, partition_number, offset_value) " +
+               "ON CONFLICT DO NOTHING";
+    }
+
+    // Binds the row's 14 parameters after the first base ones
+    private void bind(PreparedStatement ps, int base, MessageMetadata m) throws SQLException {
+        ps.setString(base + 1, m.getMessageKey());
+        ps.setString(base + 2, m.getTopic());
+        ps.setObject(base + 3, m.getPartition(), Types.INTEGER);
+        ps.setObject(base + 4, m.getOffset(), Types.BIGINT);
+        ps.setString(base + 5, m.getRawMessage());
+        ps.setString(base + 6, m.getNormalizedMessage());
+        ps.setString(base + 7, m.getServiceName());
+        ps.setString(base + 8, m.getLogLevel());
+        ps.setString(base + 9, m.getSchemaVersion());
+        ps.setObject(base + 10, m.getSchemaId(), Types.INTEGER);
+        ps.setObject(base + 11, m.getProcessingTimeMs(), Types.BIGINT);
+        ps.setObject(base + 12, toUtc(m.getCreatedAt()), Types.TIMESTAMP_WITH_TIMEZONE);
+        ps.setObject(base + 13, toUtc(m.getProcessedAt()), Types.TIMESTAMP_WITH_TIMEZONE);
+        ps.setString(base + 14, m.getCreatedBy());
+    }
+
+    private void bindCompressed(PreparedStatement ps, int base, MessageMetadata m, StoredPayload stored)
+            throws SQLException {
+        bind(ps, base, m);
+        ps.setBytes(base + 5, stored.isShared() ? null : stored.blob());
+        ps.setString(base + 6, stored.hash());
+    }
+
+    private static void bindPayload(PreparedStatement ps, StoredPayload stored, Instant createdAt) throws SQLException {
+        ps.setString(1, stored.hash());
+        ps.setBytes(2, stored.blob());
+        ps.setObject(3, toUtc(createdAt), Types.TIMESTAMP_WITH_TIMEZONE);
+    }
+
+    // stored is null in plain storage mode
+    private record StoredRow(MessageMetadata message, StoredPayload stored) {
+    }
+
+    private record OffsetKey(String topic, int partition, long offset) {
+    }
+
+    private static OffsetDateTime toUtc(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
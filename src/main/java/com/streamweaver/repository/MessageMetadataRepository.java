@@ -1,16 +1,28 @@
 package com.streamweaver.repository;
 
 import com.streamweaver.entity.MessageMetadata;
+import com.streamweaver.service.MessageSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface MessageMetadataRepository extends JpaRepository<MessageMetadata, Long> {
     
+    // Payload-free projection for list views; payload columns are never read
+    String SELECT_SUMMARY = "SELECT new com.streamweaver.service.MessageSummary(m.id, m.messageKey, m.topic, " +
+        "m.partition, m.offset, m.serviceName, m.logLevel, m.schemaVersion, m.processingTimeMs, " +
+        "m.createdAt, m.processedAt) FROM MessageMetadata m ";
+    
     List<MessageMetadata> findByTopic(String topic);
     
     List<MessageMetadata> findByServiceName(String serviceName);
@@ -19,9 +31,68 @@ public interface MessageMetadataRepository extends JpaRepository<MessageMetadata
     
     List<MessageMetadata> findByCreatedAtBetween(Instant start, Instant end);
     
+    // Deduplicated payload fetched in the same query, so the row serializes outside the transaction
+    @Query("SELECT m FROM MessageMetadata m LEFT JOIN FETCH m.sharedPayload WHERE m.id = ?1")
+    Optional<MessageMetadata> findWithPayloadById(long id);
+    
     @Query("SELECT COUNT(m) FROM MessageMetadata m WHERE m.topic = ?1")
     Long countByTopic(String topic);
     
     @Query("SELECT AVG(m.processingTimeMs) FROM MessageMetadata m WHERE m.topic = ?1")
     Double averageProcessingTime(String topic);
+    
+    // Stored offsets of one partition from a position on, served by uk_topic_partition_offset
+    @Query("SELECT m.offset FROM MessageMetadata m WHERE m.topic = ?1 AND m.partition = ?2 " +
+           "AND m.offset >= ?3 ORDER BY m.offset")
+    List<Long> findOffsetsFrom(String topic, int partition, long fromOffset, Pageable pageable);
+    
+    // Keyset pages of summaries: rows after a cursor id within [from, to], ordered by id
+    
+    @Query(SELECT_SUMMARY + "WHERE m.id > ?1 AND m.createdAt BETWEEN ?2 AND ?3 ORDER BY m.id")
+    List<MessageSummary> findPage(long afterId, Instant from, Instant to, Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE m.topic = ?1 AND m.id > ?2 " +
+           "AND m.createdAt BETWEEN ?3 AND ?4 ORDER BY m.id")
+    List<MessageSummary> findPageByTopic(String topic, long afterId, Instant from, Instant to, Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE m.serviceName = ?1 AND m.id > ?2 " +
+           "AND m.createdAt BETWEEN ?3 AND ?4 ORDER BY m.id")
+    List<MessageSummary> findPageByServiceName(String serviceName, long afterId, Instant from, Instant to, Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE m.logLevel = ?1 AND m.id > ?2 " +
+           "AND m.createdAt BETWEEN ?3 AND ?4 ORDER BY m.id")
+    List<MessageSummary> findPageByLogLevel(String logLevel, long afterId, Instant from, Instant to, Pageable pageable);
+    
+    // Cursor-backed streams, must be consumed inside a read-only transaction; shared payloads are joined per row
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM MessageMetadata m LEFT JOIN FETCH m.sharedPayload WHERE m.id > ?1 AND m.createdAt BETWEEN ?2 AND ?3 ORDER BY m.id")
+    Stream<MessageMetadata> streamAll(long afterId, Instant from, Instant to);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM MessageMetadata m LEFT JOIN FETCH m.sharedPayload WHERE m.topic = ?1 AND m.id > ?2 " +
+           "AND m.createdAt BETWEEN ?3 AND ?4 ORDER BY m.id")
+    Stream<MessageMetadata> streamByTopic(String topic, long afterId, Instant from, Instant to);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM MessageMetadata m LEFT JOIN FETCH m.sharedPayload WHERE m.serviceName = ?1 AND m.id > ?2 " +
+           "AND m.createdAt BETWEEN ?3 AND ?4 ORDER BY m.id")
+    Stream<MessageMetadata> streamByServiceName(String serviceName, long afterId, Instant from, Instant to);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM MessageMetadata m LEFT JOIN FETCH m.sharedPayload WHERE m.logLevel = ?1 AND m.id > ?2 " +
+           "AND m.createdAt BETWEEN ?3 AND ?4 ORDER BY m.id")
+    Stream<MessageMetadata> streamByLogLevel(String logLevel, long afterId, Instant from, Instant to);
 }
@@ -0,0 +1,72 @@
+package com.streamweaver.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Routes connections to the write pool, or to the isolated read pool for transactions
+ * begun by ReadPoolTransactionManager.
+ *
+ * The read pool is opt-in per transaction rather than chosen by the read-only flag:
+ * repository queries are read-only by default, and ingest-side lookups (schema
+ * versions, stored offsets) must neither wait behind analytics queries nor read a
+ * lagging replica.
+ */
+public class ReadRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Transaction manager bean for @Transactional(transactionManager = READ_TRANSACTION_MANAGER, readOnly = true)
+     */
+    public static final String READ_TRANSACTION_MANAGER = "readTransactionManager";
+
+    private static final String WRITE = "write";
+    private static final String READ = "read";
+    private static final ThreadLocal<Boolean> READ_POOL = new ThreadLocal<>();
+
+    public ReadRoutingDataSource(DataSource writePool, DataSource readPool) {
+        setTargetDataSources(Map.of(WRITE, writePool, READ, readPool));
+        setDefaultTargetDataSource(writePool);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Boolean.TRUE.equals(READ_POOL.get()) ? READ : WRITE;
+    }
+
+    /**
+     * JpaTransactionManager that marks its thread for the read pool before the
+     * transaction's connection is acquired, and clears it once the transaction ends
+     */
+    public static class ReadPoolTransactionManager extends JpaTransactionManager {
+
+        public ReadPoolTransactionManager(EntityManagerFactory entityManagerFactory) {
+            super(entityManagerFactory);
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            READ_POOL.set(Boolean.TRUE);
+            try {
+                super.doBegin(transaction, definition);
+            } catch (RuntimeException | Error e) {
+                READ_POOL.remove();
+                throw e;
+            }
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            try {
+                super.doCleanupAfterCompletion(transaction);
+            } finally {
+                READ_POOL.remove();
+            }
+        }
+    }
+}
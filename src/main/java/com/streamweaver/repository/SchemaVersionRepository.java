@@ -2,6 +2,7 @@ package com.streamweaver.repository;
 
 import com.streamweaver.entity.SchemaVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +18,10 @@ public interface SchemaVersionRepository extends JpaRepository<SchemaVersion, Lo
     Optional<SchemaVersion> findBySchemaId(Integer schemaId);
     
     List<SchemaVersion> findByIsActive(Boolean isActive);
+    
+    Optional<SchemaVersion> findTopBySubjectOrderByVersionDesc(String subject);
+    
+    @Query("SELECT s FROM SchemaVersion s WHERE s.version = " +
+           "(SELECT MAX(v.version) FROM SchemaVersion v WHERE v.subject = s.subject)")
+    List<SchemaVersion> findLatestVersions();
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.streamweaver.repository;
+
+import com.streamweaver.entity.TopicServiceStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface TopicServiceStatsRepository extends JpaRepository<TopicServiceStats, Long> {
+
+    /**
+     * Add counts accumulated since the last checkpoint; safe with several instances
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO topic_service_stats " +
+                   "(topic, service_name, message_count, total_processing_time_ms, updated_at) " +
+                   "VALUES (?1, ?2, ?3, ?4, ?5) " +
+                   "ON CONFLICT (topic, service_name) DO UPDATE SET " +
+                   "message_count = topic_service_stats.message_count + EXCLUDED.message_count, " +
+                   "total_processing_time_ms = topic_service_stats.total_processing_time_ms + EXCLUDED.total_processing_time_ms, " +
+                   "updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    void addDelta(String topic, String serviceName, long messageCount, long totalProcessingTimeMs, Instant updatedAt);
+}
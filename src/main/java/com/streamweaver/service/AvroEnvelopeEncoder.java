@@ -0,0 +1,323 @@
+package com.streamweaver.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Avro binary encoder for the normalized envelope.
+ *
+ * The schema document from PayloadExtractor.describe is translated into an Avro
+ * record (every field nullable), registered once per service and structural hash,
+ * and cached together with its compiled DatumWriter; the least recently used writers
+ * are evicted past max-writers. Output uses the Confluent wire format (magic byte,
+ * 4-byte schema ID, Avro binary), so downstream consumers can read it with
+ * KafkaAvroDeserializer.
+ *
+ * Subjects follow TopicRecordNameStrategy with one record name per structure:
+ * normalized-data-com.streamweaver.normalized.&lt;service&gt;_&lt;structure hash&gt;. Each subject
+ * holds a single schema, so a field that changes type never fails the registry's
+ * compatibility check against an earlier structure. A failed registration is remembered
+ * for registration-retry-ms, during which that structure fails fast instead of calling
+ * the registry for every record.
+ *
+ * Payloads are encoded in one streaming pass, without building a JsonNode tree.
+ * Nested objects and arrays are carried as JSON text, and payloads that are not a
+ * JSON object are carried whole in the envelope's raw field.
+ */
+@Service
+@Slf4j
+public class AvroEnvelopeEncoder {
+
+    static final String NAMESPACE = "com.streamweaver.normalized";
+    static final String OUTPUT_TOPIC = "normalized-data";
+    private static final byte MAGIC_BYTE = 0x0;
+    private static final String ENVELOPE_VERSION = "1.0";
+
+    @Autowired
+    private SchemaRegistryClient schemaRegistryClient;
+
+    @Autowired
+    private PayloadExtractor payloadExtractor;
+
+    @Value("${streamweaver.output.avro.max-writers:10000}")
+    private int maxWriters;
+
+    @Value("${streamweaver.output.avro.registration-retry-ms:30000}")
+    private long registrationRetryMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = objectMapper.getFactory();
+    private Map<WriterKey, Registration> writers;
+
+    @PostConstruct
+    void init() {
+        writers = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<WriterKey, Registration> eldest) {
+                return size() > maxWriters;
+            }
+        });
+    }
+
+    /**
+     * Encode one payload, registering its Avro schema on first use
+     *
+     * @param structureHash PayloadSummary.getStructureHash() of rawJson, or null to compute it
+     */
+    public byte[] encode(String serviceName, Long structureHash, String rawJson, Instant normalizedAt) {
+        String service = serviceName != null ? serviceName : PayloadSummary.DEFAULT_SERVICE_NAME;
+        long hash = structureHash != null ? structureHash
+            : rawJson != null ? payloadExtractor.extract(rawJson).getStructureHash() : StructureHash.EMPTY_OBJECT;
+        EnvelopeWriter writer = writer(new WriterKey(service, hash), rawJson);
+        try {
+            return writer.write(jsonFactory, rawJson, normalizedAt);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode payload for " + service + ": " + e.getMessage(), e);
+        }
+    }
+
+    public int cachedWriters() {
+        return writers.size();
+    }
+
+    // Registration runs outside the map lock; two threads racing on a new structure register the same schema
+    private EnvelopeWriter writer(WriterKey key, String rawJson) {
+        Registration registration = writers.get(key);
+        if (registration != null && registration.writer() != null) {
+            return registration.writer();
+        }
+        if (registration != null && System.currentTimeMillis() < registration.retryAtMillis()) {
+            throw new IllegalStateException(registration.failure(), registration.cause());
+        }
+        try {
+            EnvelopeWriter writer = register(key,
+                rawJson != null ? payloadExtractor.describe(rawJson) : PayloadSummary.EMPTY_SCHEMA);
+            writers.put(key, new Registration(writer, null, null, 0));
+            return writer;
+        } catch (IllegalStateException e) {
+            writers.put(key, new Registration(null, e.getMessage(), e.getCause(),
+                                              System.currentTimeMillis() + registrationRetryMs));
+            throw e;
+        }
+    }
+
+    private EnvelopeWriter register(WriterKey key, String schemaDocument) {
+        String service = key.service();
+        Map<String, Object> fieldTypes;
+        try {
+            fieldTypes = objectMapper.readValue(schemaDocument, new TypeReference<LinkedHashMap<String, Object>>() { });
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid inferred schema: " + schemaDocument, e);
+        }
+
+        String recordName = avroName(service) + "_" + Long.toHexString(key.structureHash());
+        Set<String> usedNames = new HashSet<>();
+        List<Schema.Field> dataFields = new ArrayList<>(fieldTypes.size());
+        Map<String, FieldPlan> plan = new HashMap<>(fieldTypes.size() * 2);
+        for (Map.Entry<String, Object> field : fieldTypes.entrySet()) {
+            FieldType type = FieldType.of(field.getValue());
+            Schema.Field avroField = new Schema.Field(uniqueName(avroName(field.getKey()), usedNames),
+                type.schema(), null, JsonProperties.NULL_VALUE);
+            avroField.addProp("json.name", field.getKey());
+            plan.put(field.getKey(), new FieldPlan(dataFields.size(), type));
+            dataFields.add(avroField);
+        }
+        Schema dataSchema = Schema.createRecord(recordName + "_data", null, NAMESPACE, false, dataFields);
+
+        Schema timestamp = LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG));
+        Schema envelope = Schema.createRecord(recordName, "Normalized envelope for service " + service,
+            NAMESPACE, false, List.of(
+                new Schema.Field("data", dataSchema),
+                new Schema.Field("raw", FieldType.STRING.schema(), null, JsonProperties.NULL_VALUE),
+                new Schema.Field("normalized_at", timestamp),
+                new Schema.Field("version", Schema.create(Schema.Type.STRING), null, ENVELOPE_VERSION)));
+
+        String subject = OUTPUT_TOPIC + "-" + envelope.getFullName();
+        try {
+            int schemaId = schemaRegistryClient.register(subject, new AvroSchema(envelope));
+            log.info("✅ Registered Avro schema {} for subject {}", schemaId, subject);
+            return new EnvelopeWriter(schemaId, envelope, dataSchema, plan);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot register Avro schema for " + subject + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Avro names are [A-Za-z_][A-Za-z0-9_]*; the original JSON name is kept in the json.name property
+    static String avroName(String name) {
+        StringBuilder sb = new StringBuilder(name.length() + 1);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (i > 0 && c >= '0' && c <= '9');
+            if (i == 0 && c >= '0' && c <= '9') {
+                sb.append('_');
+                valid = true;
+            }
+            sb.append(valid ? c : '_');
+        }
+        return sb.length() > 0 ? sb.toString() : "_";
+    }
+
+    private static String uniqueName(String name, Set<String> usedNames) {
+        String candidate = name;
+        for (int suffix = 2; !usedNames.add(candidate); suffix++) {
+            candidate = name + "_" + suffix;
+        }
+        return candidate;
+    }
+
+    private enum FieldType {
+        INT(Schema.Type.INT), LONG(Schema.Type.LONG), DOUBLE(Schema.Type.DOUBLE),
+        BOOLEAN(Schema.Type.BOOLEAN), STRING(Schema.Type.STRING);
+
+        private final Schema.Type avroType;
+
+        FieldType(Schema.Type avroType) {
+            this.avroType = avroType;
+        }
+
+        // Nested objects and arrays have map/list documents and are carried as JSON text
+        static FieldType of(Object inferredType) {
+            if (!(inferredType instanceof String scalar)) {
+                return STRING;
+            }
+            return switch (scalar) {
+                case "integer" -> INT;
+                case "long" -> LONG;
+                case "double" -> DOUBLE;
+                case "boolean" -> BOOLEAN;
+                default -> STRING;
+            };
+        }
+
+        Schema schema() {
+            return Schema.createUnion(Schema.create(Schema.Type.NULL), Schema.create(avroType));
+        }
+
+        // Reads the value at the parser's current token, leaving the parser on its last token
+        Object convert(JsonParser parser, JsonToken token) throws IOException {
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                if (this == STRING) {
+                    return parser.readValueAsTree().toString();
+                }
+                parser.skipChildren();
+                return null;
+            }
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            return switch (this) {
+                case INT -> token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT
+                    ? parser.getIntValue() : null;
+                case LONG -> token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER
+                    ? parser.getLongValue() : null;
+                case DOUBLE -> token.isNumeric() ? parser.getDoubleValue() : null;
+                case BOOLEAN -> token.isBoolean() ? parser.getBooleanValue() : null;
+                case STRING -> parser.getText();
+            };
+        }
+    }
+
+    private record FieldPlan(int index, FieldType type) {
+    }
+
+    private record WriterKey(String service, long structureHash) {
+    }
+
+    /**
+     * A cached writer, or a failed registration that is not retried before retryAtMillis
+     */
+    private record Registration(EnvelopeWriter writer, String failure, Throwable cause, long retryAtMillis) {
+    }
+
+    private static final class EnvelopeWriter {
+
+        private final byte[] header;
+        private final Schema envelopeSchema;
+        private final Schema dataSchema;
+        private final Map<String, FieldPlan> plan;
+        private final GenericDatumWriter<GenericRecord> datumWriter;
+
+        EnvelopeWriter(int schemaId, Schema envelopeSchema, Schema dataSchema, Map<String, FieldPlan> plan) {
+            this.header = new byte[]{MAGIC_BYTE, (byte) (schemaId >>> 24), (byte) (schemaId >>> 16),
+                                     (byte) (schemaId >>> 8), (byte) schemaId};
+            this.envelopeSchema = envelopeSchema;
+            this.dataSchema = dataSchema;
+            this.plan = plan;
+            this.datumWriter = new GenericDatumWriter<>(envelopeSchema);
+        }
+
+        byte[] write(JsonFactory jsonFactory, String rawJson, Instant normalizedAt) throws IOException {
+            GenericRecord data = rawJson != null ? data(jsonFactory, rawJson) : null;
+            GenericRecord envelope = new GenericData.Record(envelopeSchema);
+            if (data == null) {
+                data = new GenericData.Record(dataSchema);
+                envelope.put("raw", rawJson);
+            }
+            envelope.put("data", data);
+            envelope.put("normalized_at", normalizedAt.toEpochMilli());
+            envelope.put("version", ENVELOPE_VERSION);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(header.length + 256);
+            out.write(header);
+            BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+            datumWriter.write(envelope, encoder);
+            encoder.flush();
+            return out.toByteArray();
+        }
+
+        // Top-level fields streamed straight into the data record; null when the payload is not a JSON object
+        private GenericRecord data(JsonFactory jsonFactory, String rawJson) throws IOException {
+            try (JsonParser parser = jsonFactory.createParser(rawJson)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                GenericRecord data = new GenericData.Record(dataSchema);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    FieldPlan field = plan.get(parser.getCurrentName());
+                    JsonToken token = parser.nextToken();
+                    if (field != null) {
+                        // A repeated key overwrites, as it would in a parsed tree
+                        data.put(field.index(), field.type().convert(parser, token));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                return data;
+            } catch (JsonProcessingException e) {
+                // Not JSON: carried as-is in the raw field
+                return null;
+            }
+        }
+    }
+}
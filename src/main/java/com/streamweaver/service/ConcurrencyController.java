@@ -0,0 +1,331 @@
+package com.streamweaver.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD control of consumer concurrency from downstream latency.
+ *
+ * Every interval the controller compares the mean persist and send-ack latency of the
+ * last interval with a slowly rising baseline, and reads the Hikari connection wait.
+ * When any of them shows congestion the per-partition in-flight limit of pipelined and
+ * keyed modes is cut multiplicatively; otherwise, while partitions are being paused at
+ * the limit, it grows additively. When the pool is exhausted even at the minimum limit,
+ * the containers are paused; paused containers keep polling, so the group does not
+ * rebalance. They are resumed only after resume-intervals consecutive intervals without
+ * congestion, so an interval that is quiet because everything is paused does not resume
+ * them on its own.
+ *
+ * Listeners of record, batch and bytes modes block the poll thread, and pausing cannot
+ * shorten a poll that is already being drained. For them the controller estimates the
+ * per-record drain time instead and lowers max.poll.records so a whole poll drains well
+ * within poll-budget-ratio of max.poll.interval.ms. The new value takes effect when the
+ * containers are restarted, which rebalances the group, so it is cut to half of what
+ * fits the budget and only doubled back, up to the configured value, once that has fit
+ * for resume-intervals intervals and poll-records-cooldown-ms has passed since the last
+ * restart. Intervals without samples change nothing.
+ *
+ * Off by default; enable it with streamweaver.consumer.adaptive.enabled.
+ */
+@Service
+@Slf4j
+public class ConcurrencyController {
+
+    private static final Set<String> BLOCKING_MODES = Set.of("record", "batch", "bytes");
+    // Baseline follows drops immediately and rises by this fraction of the gap per interval
+    private static final double BASELINE_RISE = 0.05;
+    // max.poll.records is cut to this fraction of what fits the poll budget
+    private static final double POLL_RECORDS_MARGIN = 0.5;
+
+    @Value("${streamweaver.consumer.adaptive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${streamweaver.consumer.mode:record}")
+    private String mode;
+
+    @Value("${streamweaver.consumer.adaptive.min-in-flight:10}")
+    private int minInFlight;
+
+    @Value("${streamweaver.consumer.adaptive.max-in-flight:2000}")
+    private int maxInFlight;
+
+    @Value("${streamweaver.consumer.adaptive.increase:10}")
+    private int increase;
+
+    @Value("${streamweaver.consumer.adaptive.decrease-ratio:0.7}")
+    private double decreaseRatio;
+
+    @Value("${streamweaver.consumer.adaptive.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${streamweaver.consumer.adaptive.max-pool-wait-ms:50}")
+    private long maxPoolWaitMs;
+
+    @Value("${streamweaver.consumer.max-poll-interval-ms:300000}")
+    private long maxPollIntervalMs;
+
+    @Value("${streamweaver.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${streamweaver.consumer.batch.max-size:500}")
+    private int batchMaxSize;
+
+    @Value("${streamweaver.consumer.adaptive.poll-budget-ratio:0.5}")
+    private double pollBudgetRatio;
+
+    @Value("${streamweaver.consumer.adaptive.min-poll-records:10}")
+    private int minPollRecords;
+
+    @Value("${streamweaver.consumer.adaptive.resume-intervals:5}")
+    private int resumeIntervals;
+
+    @Value("${streamweaver.consumer.adaptive.poll-records-cooldown-ms:60000}")
+    private long pollRecordsCooldownMs;
+
+    @Autowired
+    private InFlightLimiter inFlightLimiter;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // The ingest pool; REST reads use their own
+    @Autowired
+    @Qualifier("writeDataSource")
+    private DataSource dataSource;
+
+    private final Latency persist = new Latency();
+    private final Latency persistBatch = new Latency();
+    private final Latency send = new Latency();
+
+    private double lastPoolWaitNanos;
+    private double lastPoolAcquires;
+    private volatile boolean paused;
+    private int clearIntervals;
+
+    // Blocking modes: configured and current max.poll.records, and containers still restarting
+    private int configuredPollRecords;
+    private volatile int pollRecords;
+    private int fitIntervals;
+    private long lastRestartMillis;
+    private final AtomicInteger restarting = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        configuredPollRecords = "batch".equals(mode) ? batchMaxSize : maxPollRecords;
+        pollRecords = configuredPollRecords;
+    }
+
+    /**
+     * Stage latency sample, fed from IngestMetrics.record
+     */
+    public void observe(IngestMetrics.Stage stage, long nanos) {
+        switch (stage) {
+            case PERSIST -> persist.add(nanos);
+            case PERSIST_BATCH -> persistBatch.add(nanos);
+            case SEND_ACK -> send.add(nanos);
+            default -> { }
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public int getPollRecords() {
+        return pollRecords;
+    }
+
+    @Scheduled(fixedDelayString = "${streamweaver.consumer.adaptive.interval-ms:1000}")
+    public void adjust() {
+        if (!enabled) {
+            return;
+        }
+        double persistNanos = persist.interval();
+        double batchNanos = persistBatch.interval();
+        double sendNanos = send.interval();
+        double poolWaitNanos = poolWaitNanos();
+        boolean poolExhausted = poolExhausted();
+
+        boolean congested = persist.congested(latencyTolerance) || persistBatch.congested(latencyTolerance)
+            || send.congested(latencyTolerance)
+            || poolWaitNanos > TimeUnit.MILLISECONDS.toNanos(maxPoolWaitMs)
+            || poolExhausted;
+
+        int limit = inFlightLimiter.getMaxInFlight();
+        if (congested) {
+            int reduced = Math.max(minInFlight, (int) (limit * decreaseRatio));
+            if (reduced != limit) {
+                inFlightLimiter.setMaxInFlight(reduced);
+                log.debug("In-flight limit {} -> {} (persist={}ms send={}ms pool wait={}ms)", limit, reduced,
+                          millis(persistNanos), millis(sendNanos), millis(poolWaitNanos));
+            }
+        } else if (inFlightLimiter.pausedPartitions() > 0 && limit < maxInFlight) {
+            // Only grow while the limit is what holds partitions back
+            inFlightLimiter.setMaxInFlight(Math.min(maxInFlight, limit + increase));
+        }
+
+        if (BLOCKING_MODES.contains(mode)) {
+            limitPollRecords(persistNanos, batchNanos);
+            return;
+        }
+
+        boolean overloaded = poolExhausted && limit <= minInFlight;
+        clearIntervals = congested || overloaded ? 0 : clearIntervals + 1;
+        if (overloaded && !paused) {
+            log.warn("⏸️ Pausing consumers: connection pool exhausted at the minimum in-flight limit {}", limit);
+            setPaused(true);
+        } else if (paused && clearIntervals >= resumeIntervals) {
+            log.info("▶️ Resuming consumers after {} intervals without congestion", clearIntervals);
+            setPaused(false);
+        }
+    }
+
+    // The poll thread blocks on every record (or on one bulk insert per poll) in these modes
+    private void limitPollRecords(double persistNanos, double batchNanos) {
+        double perRecordNanos = "batch".equals(mode) ? batchNanos / pollRecords : persistNanos;
+        if (perRecordNanos <= 0 || restarting.get() > 0) {
+            return;
+        }
+        double pollBudgetNanos = TimeUnit.MILLISECONDS.toNanos(maxPollIntervalMs) * pollBudgetRatio;
+        int fits = (int) Math.min(configuredPollRecords, pollBudgetNanos / perRecordNanos);
+
+        if (fits < pollRecords) {
+            fitIntervals = 0;
+            int reduced = Math.max(minPollRecords, (int) (fits * POLL_RECORDS_MARGIN));
+            if (reduced < pollRecords) {
+                log.warn("⏬ Lowering max.poll.records {} -> {}: estimated poll drain {}ms of {}ms max.poll.interval.ms",
+                         pollRecords, reduced, Math.round(millis(perRecordNanos * pollRecords)), maxPollIntervalMs);
+                restartWith(reduced);
+            }
+        } else if (pollRecords < configuredPollRecords && fits >= pollRecords * 2) {
+            if (++fitIntervals >= resumeIntervals
+                && System.currentTimeMillis() - lastRestartMillis >= pollRecordsCooldownMs) {
+                int raised = Math.min(configuredPollRecords, pollRecords * 2);
+                log.info("⏫ Raising max.poll.records {} -> {}", pollRecords, raised);
+                restartWith(raised);
+            }
+        } else {
+            fitIntervals = 0;
+        }
+    }
+
+    // max.poll.records only applies to new consumers, so the running containers are restarted
+    private void restartWith(int records) {
+        pollRecords = records;
+        fitIntervals = 0;
+        lastRestartMillis = System.currentTimeMillis();
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getListenerContainers()) {
+            if (!container.isRunning()) {
+                continue;
+            }
+            container.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Integer.toString(records));
+            restarting.incrementAndGet();
+            container.stop(() -> {
+                restarting.decrementAndGet();
+                if (kafkaListenerEndpointRegistry.isRunning()) {
+                    container.start();
+                }
+            });
+        }
+    }
+
+    private void setPaused(boolean pause) {
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getListenerContainers()) {
+            if (!container.isRunning()) {
+                continue;
+            }
+            // Container-level pause; partitions paused by the in-flight limit stay paused on resume
+            if (pause) {
+                container.pause();
+            } else {
+                container.resume();
+            }
+        }
+        paused = pause;
+    }
+
+    // Mean Hikari connection acquire time over the last interval, from the pool's Micrometer timer
+    private double poolWaitNanos() {
+        if (!(dataSource instanceof HikariDataSource hikari)) {
+            return 0;
+        }
+        Timer acquire = meterRegistry.find("hikari.connections.acquire").tag("pool", hikari.getPoolName()).timer();
+        if (acquire == null) {
+            return 0;
+        }
+        double total = acquire.totalTime(TimeUnit.NANOSECONDS);
+        double count = acquire.count();
+        double waited = total - lastPoolWaitNanos;
+        double acquires = count - lastPoolAcquires;
+        lastPoolWaitNanos = total;
+        lastPoolAcquires = count;
+        return acquires > 0 ? waited / acquires : 0;
+    }
+
+    // More threads waiting for a connection than the pool holds
+    private boolean poolExhausted() {
+        if (!(dataSource instanceof HikariDataSource hikari)) {
+            return false;
+        }
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        return pool != null && pool.getThreadsAwaitingConnection() >= hikari.getMaximumPoolSize();
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Latency accumulated between control intervals, with a baseline that tracks the
+     * uncongested level: it follows drops at once and rises only slowly
+     */
+    private static final class Latency {
+
+        private final LongAdder sum = new LongAdder();
+        private final LongAdder count = new LongAdder();
+        private double baseline;
+        private double last;
+
+        void add(long nanos) {
+            sum.add(nanos);
+            count.increment();
+        }
+
+        // Mean of the samples since the previous call, 0 without samples
+        double interval() {
+            long samples = count.sumThenReset();
+            long total = sum.sumThenReset();
+            last = samples > 0 ? (double) total / samples : 0;
+            if (last > 0) {
+                baseline = baseline == 0 || last < baseline ? last : baseline + (last - baseline) * BASELINE_RISE;
+            }
+            return last;
+        }
+
+        boolean congested(double tolerance) {
+            return last > 0 && last > baseline * tolerance;
+        }
+    }
+}
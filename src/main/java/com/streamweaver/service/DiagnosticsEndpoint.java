@@ -0,0 +1,35 @@
+package com.streamweaver.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/diagnostics: dump of the most recent PayloadDiagnostics traces, newest first
+ */
+@Component
+@Endpoint(id = "diagnostics")
+public class DiagnosticsEndpoint {
+
+    @Autowired
+    private PayloadDiagnostics payloadDiagnostics;
+
+    @ReadOperation
+    public Map<String, Object> recent(@Nullable Integer limit) {
+        List<Map<String, Object>> traces = payloadDiagnostics.recent(
+            limit != null ? Math.max(1, limit) : payloadDiagnostics.capacity());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("recorded", payloadDiagnostics.recorded());
+        response.put("capacity", payloadDiagnostics.capacity());
+        response.put("sample_rate", payloadDiagnostics.sampleRate());
+        response.put("traces", traces);
+        return response;
+    }
+}
@@ -0,0 +1,89 @@
+package com.streamweaver.service;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-partition accounting of records that have been handed off but not yet acknowledged.
+ *
+ * acquire() reports when a partition reaches its limit and should be paused, and
+ * release() reports when it has drained to half the limit and can be resumed.
+ * Both decisions are made under the partition's lock, so a pause can never be
+ * requested after the matching resume.
+ */
+@Service
+public class InFlightLimiter {
+
+    @Value("${streamweaver.consumer.pipelined.max-in-flight-per-partition:500}")
+    private volatile int maxInFlight;
+
+    private final ConcurrentMap<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Count one more in-flight record; true if the caller should pause the partition
+     */
+    public boolean acquire(TopicPartition partition) {
+        PartitionState state = partitions.computeIfAbsent(partition, p -> new PartitionState());
+        synchronized (state) {
+            state.inFlight++;
+            if (!state.paused && state.inFlight >= maxInFlight) {
+                state.paused = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Count one record as done; true if the caller should resume the partition
+     */
+    public boolean release(TopicPartition partition) {
+        PartitionState state = partitions.get(partition);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            state.inFlight = Math.max(0, state.inFlight - 1);
+            if (state.paused && state.inFlight <= maxInFlight / 2) {
+                state.paused = false;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public int inFlight(TopicPartition partition) {
+        PartitionState state = partitions.get(partition);
+        return state != null ? state.inFlight : 0;
+    }
+
+    public boolean isPaused(TopicPartition partition) {
+        PartitionState state = partitions.get(partition);
+        return state != null && state.paused;
+    }
+
+    public int totalInFlight() {
+        return partitions.values().stream().mapToInt(state -> state.inFlight).sum();
+    }
+
+    public int pausedPartitions() {
+        return (int) partitions.values().stream().filter(state -> state.paused).count();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    private static final class PartitionState {
+        volatile int inFlight;
+        volatile boolean paused;
+    }
+}
@@ -0,0 +1,225 @@
+package com.streamweaver.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the consume pipeline.
+ *
+ * Every stage has a nanosecond timer tagged by stage and topic, published as a
+ * percentile histogram so the slowest stage can be read off /actuator/prometheus.
+ * Drift and failure counters are also tagged by service; past max-services distinct
+ * names, further services are reported as "other" to keep tag cardinality bounded.
+ */
+@Service
+public class IngestMetrics {
+
+    public static final String FAILURE_PROCESS = "process";
+    public static final String FAILURE_PERSIST = "persist";
+    public static final String FAILURE_SEND = "send";
+
+    private static final String OTHER_SERVICE = "other";
+
+    public enum Stage {
+        /** Single streaming pass that parses the payload and infers its field signature */
+        EXTRACT("extract"),
+        DRIFT_LOOKUP("drift_lookup"),
+        REGISTER("register"),
+        NORMALIZE("normalize"),
+        AVRO_ENCODE("avro_encode"),
+        PERSIST("persist"),
+        PERSIST_BATCH("persist_batch"),
+        /** Append and fsync to the local spill log while Postgres is unavailable */
+        SPILL("spill"),
+        SEND_ACK("send_ack");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private InFlightLimiter inFlightLimiter;
+
+    @Autowired
+    private SpillLog spillLog;
+
+    @Autowired
+    private PayloadDiagnostics payloadDiagnostics;
+
+    @Autowired
+    private ConcurrencyController concurrencyController;
+
+    @Value("${streamweaver.metrics.max-services:500}")
+    private int maxServices;
+
+    private final ConcurrentMap<String, Timer[]> stageTimers = new ConcurrentHashMap<>();
+    private final Set<String> services = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder("streamweaver.consumer.in.flight", inFlightLimiter, InFlightLimiter::totalInFlight)
+            .description("Records handed off but not yet acknowledged (pipelined and keyed modes)")
+            .register(meterRegistry);
+        Gauge.builder("streamweaver.consumer.paused.partitions", inFlightLimiter, InFlightLimiter::pausedPartitions)
+            .description("Partitions paused because they reached the in-flight limit")
+            .register(meterRegistry);
+        Gauge.builder("streamweaver.consumer.in.flight.limit", inFlightLimiter, InFlightLimiter::getMaxInFlight)
+            .description("Per-partition in-flight limit, adjusted by ConcurrencyController")
+            .register(meterRegistry);
+        Gauge.builder("streamweaver.consumer.adaptive.paused", concurrencyController, c -> c.isPaused() ? 1 : 0)
+            .description("1 while ConcurrencyController has paused the listener containers")
+            .register(meterRegistry);
+        Gauge.builder("streamweaver.consumer.adaptive.max.poll.records", concurrencyController,
+                      ConcurrencyController::getPollRecords)
+            .description("max.poll.records of blocking listener containers, lowered by ConcurrencyController")
+            .register(meterRegistry);
+        Gauge.builder("streamweaver.spill.pending", spillLog, SpillLog::pendingEntries)
+            .description("Rows in the local spill log waiting to be replayed into Postgres")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Record the time elapsed since startNanos (a System.nanoTime() reading) against a stage
+     */
+    public void record(Stage stage, String topic, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        timers(topic)[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        payloadDiagnostics.stage(stage, nanos);
+        concurrencyController.observe(stage, nanos);
+    }
+
+    public void schemaDrift(String topic, String serviceName) {
+        payloadDiagnostics.drift();
+        Counter.builder("streamweaver.schema.drift")
+            .description("Payloads whose schema differed from the subject's latest version")
+            .tag("topic", topic)
+            .tag("service", serviceTag(serviceName))
+            .register(meterRegistry)
+            .increment();
+    }
+
+    public void failure(String topic, String serviceName, String step) {
+        Counter.builder("streamweaver.ingest.failures")
+            .description("Records that failed processing, persistence or forwarding")
+            .tag("topic", topic)
+            .tag("service", serviceTag(serviceName))
+            .tag("step", step)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * A redelivered record skipped before parsing, or a row whose offset was already stored
+     */
+    public void duplicate(String topic) {
+        Counter.builder("streamweaver.ingest.duplicates")
+            .description("Records already persisted for the same topic, partition and offset")
+            .tag("topic", topic)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * A record whose row can never be stored, published to the dead-letter topic instead
+     */
+    public void deadLettered(String topic) {
+        Counter.builder("streamweaver.ingest.dead.lettered")
+            .description("Records sent to the dead-letter topic because their row could not be stored")
+            .tag("topic", topic)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    public void lateForAggregates(String topic) {
+        Counter.builder("streamweaver.aggregates.late")
+            .description("Rows that arrived after the watermark closed their window and were left out of aggregates")
+            .tag("topic", topic)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    public void futureForAggregates(String topic) {
+        Counter.builder("streamweaver.aggregates.future")
+            .description("Rows timestamped further ahead of the wall clock than the allowed lateness, left out of aggregates")
+            .tag("topic", topic)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    public void aggregatesEmitted(int results) {
+        Counter.builder("streamweaver.aggregates.emitted")
+            .description("Window results sent to the aggregates topic")
+            .register(meterRegistry)
+            .increment(results);
+    }
+
+    public void spilled(String topic, int rows) {
+        Counter.builder("streamweaver.spill.appended")
+            .description("Rows written to the local spill log instead of Postgres")
+            .tag("topic", topic)
+            .register(meterRegistry)
+            .increment(rows);
+    }
+
+    public void replayed(int rows) {
+        Counter.builder("streamweaver.spill.replayed")
+            .description("Spilled rows replayed into Postgres")
+            .register(meterRegistry)
+            .increment(rows);
+    }
+
+    private Timer[] timers(String topic) {
+        Timer[] timers = stageTimers.get(topic);
+        if (timers == null) {
+            timers = stageTimers.computeIfAbsent(topic, this::createTimers);
+        }
+        return timers;
+    }
+
+    private Timer[] createTimers(String topic) {
+        Stage[] stages = Stage.values();
+        Timer[] timers = new Timer[stages.length];
+        for (Stage stage : stages) {
+            timers[stage.ordinal()] = Timer.builder("streamweaver.ingest.stage")
+                .description("Time spent in each stage of the consume pipeline")
+                .tag("stage", stage.tag)
+                .tag("topic", topic)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        }
+        return timers;
+    }
+
+    private String serviceTag(String serviceName) {
+        String name = serviceName != null ? serviceName : PayloadSummary.DEFAULT_SERVICE_NAME;
+        if (services.contains(name)) {
+            return name;
+        }
+        if (services.size() < maxServices) {
+            services.add(name);
+            return name;
+        }
+        return OTHER_SERVICE;
+    }
+}
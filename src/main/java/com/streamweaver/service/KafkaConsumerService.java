@@ -0,0 +1,1101 @@
+package com.streamweaver.service;
+
+import com.streamweaver.entity.MessageMetadata;
+import com.streamweaver.entity.SchemaVersion;
+import com.streamweaver.repository.MessageMetadataBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+public class KafkaConsumerService {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Autowired
+    private SchemaRegistryService schemaRegistryService;
+    
+    @Autowired
+    private MessageMetadataBatchRepository messageMetadataBatchRepository;
+    
+    @Autowired
+    private PayloadExtractor payloadExtractor;
+    
+    @Autowired
+    private KafkaTemplate<String, byte[]> byteArrayKafkaTemplate;
+    
+    @Autowired
+    private NormalizedEnvelopeWriter normalizedEnvelopeWriter;
+    
+    @Autowired
+    private InFlightLimiter inFlightLimiter;
+    
+    @Autowired
+    private AsyncTaskExecutor persistExecutor;
+    
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    
+    @Autowired
+    private TopicStatsService topicStatsService;
+    
+    @Autowired
+    private IngestMetrics ingestMetrics;
+    
+    @Autowired
+    private AvroEnvelopeEncoder avroEnvelopeEncoder;
+    
+    @Autowired
+    private PayloadStorage payloadStorage;
+    
+    @Autowired
+    private SpillLog spillLog;
+    
+    @Autowired
+    private KeyOrderedExecutor keyOrderedExecutor;
+    
+    @Autowired
+    private OffsetTracker offsetTracker;
+    
+    @Autowired
+    private ProcessedOffsets processedOffsets;
+    
+    @Autowired
+    private PayloadDiagnostics payloadDiagnostics;
+    
+    @Autowired
+    private RecentMessageIndex recentMessageIndex;
+    
+    @Autowired
+    private WindowAggregator windowAggregator;
+    
+    @Autowired
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    
+    @Value("#{'${streamweaver.output.format:json}' == 'avro'}")
+    private boolean avroOutput;
+    
+    @Value("#{'${streamweaver.consumer.keyed.order-by:key}' == 'service'}")
+    private boolean orderByService;
+    
+    @Value("${streamweaver.consumer.pipelined.persist-attempts:3}")
+    private int persistAttempts;
+    
+    @Value("${streamweaver.consumer.pipelined.persist-backoff-ms:200}")
+    private long persistBackoffMs;
+    
+    @Value("${streamweaver.consumer.pipelined.max-retry-backoff-ms:30000}")
+    private long pipelinedMaxRetryBackoffMs;
+    
+    @Value("${streamweaver.consumer.pipelined.commit-interval-ms:1000}")
+    private long pipelinedCommitIntervalMs;
+    
+    // Pipelined partitions to seek back to their lowest unstored offset, on the consumer thread
+    private final ConcurrentMap<TopicPartition, Redelivery> pipelinedSeeks = new ConcurrentHashMap<>();
+    
+    // Seeks applied and last offset commit of the pipelined consumer running on this thread
+    private final ThreadLocal<PipelinedConsumer> pipelinedConsumer = ThreadLocal.withInitial(PipelinedConsumer::new);
+    
+    // Rows of the poll whose write failed on this listener thread, reused when it is redelivered
+    private final ThreadLocal<RetainedRows> retainedRows = new ThreadLocal<>();
+    
+    @Value("${streamweaver.consumer.keyed.max-retry-backoff-ms:30000}")
+    private long keyedMaxRetryBackoffMs;
+    
+    @Value("${streamweaver.consumer.keyed.max-pending-per-partition:10000}")
+    private int keyedMaxPending;
+    
+    // Keyed partitions paused because too many records wait behind their commit position
+    private final Set<TopicPartition> backlogPaused = ConcurrentHashMap.newKeySet();
+
+    @KafkaListener(topics = "raw-data", groupId = "streamweaver-group",
+                   autoStartup = "#{'${streamweaver.consumer.mode:record}' == 'record'}")
+    public void consumeRawData(ConsumerRecord<String, String> record) {
+        if (alreadyProcessed(record)) {
+            return;
+        }
+        PayloadDiagnostics.Trace trace = payloadDiagnostics.start(record);
+        String step = IngestMetrics.FAILURE_PROCESS;
+        String serviceName = null;
+        MessageMetadata metadata = null;
+        try {
+            // Built by an earlier attempt whose write failed
+            metadata = retainedRow(record);
+            if (metadata == null) {
+                metadata = processRecord(record);
+            }
+            serviceName = metadata.getServiceName();
+
+            step = IngestMetrics.FAILURE_PERSIST;
+            if (persistOrSpill(metadata)) {
+                // Send to normalized topic
+                step = IngestMetrics.FAILURE_SEND;
+                forwardNormalized(metadata);
+            }
+            payloadDiagnostics.finish(trace, serviceName);
+
+        } catch (Exception e) {
+            ingestMetrics.failure(record.topic(), serviceName, step);
+            payloadDiagnostics.fail(trace, serviceName, step, e);
+            rethrowIfUnstored(step, e, record, metadata);
+        }
+    }
+
+    /**
+     * Batch mode: persist the whole poll with one bulk insert. Transient database
+     * failures are rethrown so the container retries the poll and commits offsets only
+     * once the batch is durable, unless the spill log is enabled, in which case the batch
+     * is spilled and the poll completes. The rows of a failed poll are kept, so a retry
+     * only repeats the insert, not extraction and schema registration. If the bulk insert
+     * fails permanently, the rows are inserted one at a time and those that cannot be
+     * stored are dead-lettered, so one bad row does not hold up the poll. Only rows this
+     * poll stored are forwarded, and the poll returns once the broker has acknowledged them.
+     */
+    @KafkaListener(topics = "raw-data", groupId = "streamweaver-group",
+                   containerFactory = "batchKafkaListenerContainerFactory",
+                   autoStartup = "#{'${streamweaver.consumer.mode:record}' == 'batch'}")
+    public void consumeRawDataBatch(List<ConsumerRecord<String, String>> records) {
+        long startTime = System.currentTimeMillis();
+        RetainedRows retained = retained(records);
+        List<MessageMetadata> batch = retained != null ? retained.rows() : null;
+        // Rows stored and still to be forwarded, including those a failed attempt stored
+        List<MessageMetadata> stored = retained != null ? new ArrayList<>(retained.unforwarded()) : new ArrayList<>();
+
+        if (batch == null) {
+            batch = new ArrayList<>(records.size());
+            for (ConsumerRecord<String, String> record : records) {
+                if (alreadyProcessed(record)) {
+                    continue;
+                }
+                PayloadDiagnostics.Trace trace = payloadDiagnostics.start(record);
+                try {
+                    MessageMetadata metadata = processRecord(record);
+                    batch.add(metadata);
+                    payloadDiagnostics.finish(trace, metadata.getServiceName());
+                } catch (Exception e) {
+                    ingestMetrics.failure(record.topic(), null, IngestMetrics.FAILURE_PROCESS);
+                    payloadDiagnostics.fail(trace, null, IngestMetrics.FAILURE_PROCESS, e);
+                }
+            }
+        }
+
+        boolean spilled = spillLog.hasBacklog();
+        if (spilled) {
+            spill(batch);
+            stored.addAll(batch);
+        } else if (!batch.isEmpty()) {
+            long persistStart = System.nanoTime();
+            try {
+                List<MessageMetadata> inserted = messageMetadataBatchRepository.insertAll(batch);
+                ingestMetrics.record(IngestMetrics.Stage.PERSIST_BATCH, batch.get(0).getTopic(), persistStart);
+                onInserted(batch, inserted);
+                stored.addAll(inserted);
+            } catch (RuntimeException e) {
+                if (!PersistFailures.isTransient(e)) {
+                    log.warn("⚠️ Bulk insert of {} rows failed permanently, inserting them one at a time: {}",
+                             batch.size(), e.getMessage());
+                    insertEach(records, batch, stored);
+                } else {
+                    if (spillLog.isEnabled()) {
+                        log.warn("⚠️ Bulk insert failed, spilling batch of {} to local log: {}", batch.size(), e.getMessage());
+                        try {
+                            spill(batch);
+                            stored.addAll(batch);
+                            spilled = true;
+                        } catch (RuntimeException spillFailure) {
+                            e.addSuppressed(spillFailure);
+                        }
+                    }
+                    if (!spilled) {
+                        batch.forEach(m -> ingestMetrics.failure(m.getTopic(), m.getServiceName(), IngestMetrics.FAILURE_PERSIST));
+                        retain(records, batch, stored);
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        forwardAll(records, stored);
+        log.debug("💾 {} and forwarded batch of {}/{} messages ({}ms)", spilled ? "Spilled" : "Persisted",
+                  stored.size(), records.size(), System.currentTimeMillis() - startTime);
+    }
+
+    // inserted is the subset of batch, in the same order, that the bulk insert stored
+    private void onInserted(List<MessageMetadata> batch, List<MessageMetadata> inserted) {
+        int next = 0;
+        for (MessageMetadata row : batch) {
+            if (next < inserted.size() && inserted.get(next) == row) {
+                onPersisted(row);
+                next++;
+            } else {
+                onDuplicate(row);
+            }
+        }
+    }
+
+    /**
+     * Insert the rows of a poll one at a time after its bulk insert failed permanently,
+     * adding those inserted to stored. Rows that fail permanently are dead-lettered. On
+     * a transient failure the rest of the rows are kept along with stored and the failure
+     * is rethrown, so the container retries the poll with only the remaining rows.
+     */
+    private void insertEach(List<ConsumerRecord<String, String>> records, List<MessageMetadata> batch,
+                            List<MessageMetadata> stored) {
+        for (int i = 0; i < batch.size(); i++) {
+            MessageMetadata row = batch.get(i);
+            try {
+                MessageMetadata saved = persist(row);
+                if (saved != null) {
+                    onPersisted(saved);
+                    stored.add(saved);
+                } else {
+                    onDuplicate(row);
+                }
+            } catch (RuntimeException e) {
+                ingestMetrics.failure(row.getTopic(), row.getServiceName(), IngestMetrics.FAILURE_PERSIST);
+                if (PersistFailures.isTransient(e)) {
+                    retain(records, new ArrayList<>(batch.subList(i, batch.size())), stored);
+                    throw e;
+                }
+                deadLetter(sourceOf(records, row), e);
+            }
+        }
+    }
+
+    /**
+     * Forward the stored rows of a poll and wait until the broker has acknowledged each.
+     * A retried poll would skip them as already stored, so the rows whose send failed
+     * are kept for the retry to forward and the failure is rethrown, holding back the
+     * poll's offsets. A row that cannot even be encoded would fail the same way on every
+     * retry and is only counted.
+     */
+    private void forwardAll(List<ConsumerRecord<String, String>> records, List<MessageMetadata> rows) {
+        List<MessageMetadata> sent = new ArrayList<>(rows.size());
+        List<CompletableFuture<?>> sends = new ArrayList<>(rows.size());
+        for (MessageMetadata row : rows) {
+            try {
+                sends.add(forwardNormalized(row));
+                sent.add(row);
+            } catch (RuntimeException e) {
+                ingestMetrics.failure(row.getTopic(), row.getServiceName(), IngestMetrics.FAILURE_SEND);
+                log.error("❌ Failed to forward row at partition={}, offset={}: {}",
+                          row.getPartition(), row.getOffset(), e.getMessage());
+            }
+        }
+
+        List<MessageMetadata> unforwarded = new ArrayList<>();
+        RuntimeException failure = null;
+        for (int i = 0; i < sends.size(); i++) {
+            try {
+                sends.get(i).join();
+            } catch (CompletionException | CancellationException e) {
+                unforwarded.add(sent.get(i));
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure != null) {
+            log.error("❌ {} of {} stored rows were not forwarded, retrying the poll: {}",
+                      unforwarded.size(), rows.size(), failure.getMessage());
+            retain(records, List.of(), unforwarded);
+            throw failure;
+        }
+    }
+
+    /**
+     * Publish a record whose row can never be stored to the dead-letter topic. Throws if
+     * the publish fails, so the record is retried rather than lost.
+     */
+    private void deadLetter(ConsumerRecord<?, ?> record, Exception e) {
+        log.error("❌ Record at partition={}, offset={} cannot be stored, sending it to {}{}: {}",
+                  record.partition(), record.offset(), record.topic(), PersistFailures.DEAD_LETTER_SUFFIX,
+                  e.getMessage());
+        deadLetterPublishingRecoverer.accept(record, e);
+        ingestMetrics.deadLettered(record.topic());
+    }
+
+    private static ConsumerRecord<String, String> sourceOf(List<ConsumerRecord<String, String>> records,
+                                                           MessageMetadata row) {
+        for (ConsumerRecord<String, String> record : records) {
+            if (record.offset() == row.getOffset() && record.partition() == row.getPartition()
+                && record.topic().equals(row.getTopic())) {
+                return record;
+            }
+        }
+        throw new IllegalStateException("No record of the poll at partition=" + row.getPartition()
+                                        + ", offset=" + row.getOffset());
+    }
+
+    /**
+     * Pipelined mode: the Postgres write runs off the poll thread, and the forward to the
+     * normalized topic follows once the row is stored, so a row is never forwarded
+     * before it is durable and a duplicate is not forwarded again. Offsets complete out
+     * of order; like keyed mode, the listener commits up to the highest contiguous
+     * completed offset per partition. Partitions with too many records in flight are
+     * paused until they drain. A record that could be neither persisted nor spilled is
+     * not completed: its partition is sought back to it on this consumer thread, so it
+     * is polled again, and later records that were already stored are skipped.
+     */
+    @KafkaListener(id = "raw-data-pipelined", topics = "raw-data", groupId = "streamweaver-group",
+                   containerFactory = "pipelinedKafkaListenerContainerFactory",
+                   autoStartup = "#{'${streamweaver.consumer.mode:record}' == 'pipelined'}")
+    public void consumeRawDataPipelined(ConsumerRecord<String, String> record, Consumer<?, ?> consumer) {
+        seekUnstored(consumer);
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        if (pipelinedConsumer.get().isStale(partition, record.offset())) {
+            return;
+        }
+        try {
+            dispatchPipelined(record, partition);
+        } finally {
+            PipelinedConsumer state = pipelinedConsumer.get();
+            if (System.currentTimeMillis() - state.committedAt >= pipelinedCommitIntervalMs) {
+                commitTracked(consumer);
+                state.committedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    // Published on the consumer thread, so seeks and commits also happen while raw-data is quiet or paused
+    @EventListener(condition = "event.listenerId.startsWith('raw-data-pipelined')")
+    public void onPipelinedIdle(ListenerContainerIdleEvent event) {
+        seekUnstored(event.getConsumer());
+        commitTracked(event.getConsumer());
+        pipelinedConsumer.get().committedAt = System.currentTimeMillis();
+    }
+
+    private void dispatchPipelined(ConsumerRecord<String, String> record, TopicPartition partition) {
+        if (alreadyProcessed(record)) {
+            offsetTracker.dispatched(partition, record.offset()).completed(record.offset());
+            return;
+        }
+        OffsetTracker.PartitionOffsets offsets = offsetTracker.dispatched(partition, record.offset());
+        PayloadDiagnostics.Trace trace = payloadDiagnostics.start(record);
+        MessageMetadata metadata;
+        try {
+            metadata = processRecord(record);
+        } catch (Exception e) {
+            ingestMetrics.failure(record.topic(), null, IngestMetrics.FAILURE_PROCESS);
+            payloadDiagnostics.fail(trace, null, IngestMetrics.FAILURE_PROCESS, e);
+            offsets.completed(record.offset());
+            return;
+        }
+        // Persist and send run elsewhere; the trace is finished once both complete
+        payloadDiagnostics.detach();
+
+        if (inFlightLimiter.acquire(partition)) {
+            log.info("⏸️ Pausing {} with {} records in flight", partition, inFlightLimiter.inFlight(partition));
+            pipelinedContainer().pausePartition(partition);
+        }
+
+        CompletableFuture.supplyAsync(() -> persistWithRetry(record, metadata), persistExecutor)
+            .thenCompose(stored -> stored
+                ? forwardWithRetry(record, metadata, offsets, pipelinedMaxRetryBackoffMs, 1)
+                : CompletableFuture.completedFuture(true))
+            .whenComplete((done, ex) -> {
+                if (ex != null) {
+                    payloadDiagnostics.fail(trace, metadata.getServiceName(), IngestMetrics.FAILURE_PERSIST, ex);
+                    // Completing it would commit past the row; it is polled again instead
+                    requestRedelivery(partition, offsets, record.offset());
+                } else {
+                    payloadDiagnostics.finish(trace, metadata.getServiceName());
+                    if (done) {
+                        offsets.completed(record.offset());
+                    }
+                }
+                if (inFlightLimiter.release(partition)) {
+                    log.info("▶️ Resuming {}", partition);
+                    pipelinedContainer().resumePartition(partition);
+                }
+            });
+    }
+
+    private void requestRedelivery(TopicPartition partition, OffsetTracker.PartitionOffsets offsets, long offset) {
+        if (offsets.isRevoked()) {
+            return;
+        }
+        log.error("❌ Record at partition={}, offset={} reached neither PostgreSQL nor the spill log, " +
+                  "seeking back to redeliver it", partition.partition(), offset);
+        pipelinedSeeks.merge(partition, new Redelivery(offsets, offset),
+            (pending, failed) -> pending.offsets() == failed.offsets() && pending.offset() <= failed.offset()
+                ? pending : failed);
+    }
+
+    /**
+     * Seek this consumer's partitions back to their lowest unstored offset, and rewind
+     * their tracked offsets to it. Records of those partitions that were fetched before
+     * the seek are then skipped until the redelivery arrives. Called on the consumer thread.
+     */
+    private void seekUnstored(Consumer<?, ?> consumer) {
+        if (pipelinedSeeks.isEmpty()) {
+            return;
+        }
+        for (TopicPartition partition : consumer.assignment()) {
+            Redelivery redelivery = pipelinedSeeks.remove(partition);
+            if (redelivery == null || redelivery.offsets().isRevoked()) {
+                continue;
+            }
+            consumer.seek(partition, redelivery.offset());
+            redelivery.offsets().rewind(redelivery.offset());
+            pipelinedConsumer.get().sought.put(partition, redelivery);
+        }
+    }
+
+    private record Redelivery(OffsetTracker.PartitionOffsets offsets, long offset) {
+    }
+
+    private static final class PipelinedConsumer {
+
+        // Seek applied to each partition, until a record at or before its offset is polled
+        private final Map<TopicPartition, Redelivery> sought = new HashMap<>();
+        private long committedAt = System.currentTimeMillis();
+
+        /**
+         * True for a record fetched before its partition was sought back; the redelivery
+         * starts at the sought offset, every stale record lies beyond it. A seek made
+         * before the partition was revoked no longer applies.
+         */
+        boolean isStale(TopicPartition partition, long offset) {
+            Redelivery redelivery = sought.get(partition);
+            if (redelivery == null) {
+                return false;
+            }
+            if (offset > redelivery.offset() && !redelivery.offsets().isRevoked()) {
+                return true;
+            }
+            sought.remove(partition);
+            return false;
+        }
+    }
+
+    /**
+     * Keyed mode: records of one poll are fanned out to KeyOrderedExecutor lanes, so
+     * records sharing a message key (or service name, with order-by: service) are
+     * processed in order while other keys run in parallel. Records without a key keep
+     * their partition order. Offsets are committed up to the highest contiguous
+     * completed offset of each partition, here and from idle events on this thread.
+     */
+    @KafkaListener(id = "raw-data-keyed", topics = "raw-data", groupId = "streamweaver-group",
+                   containerFactory = "keyedKafkaListenerContainerFactory",
+                   autoStartup = "#{'${streamweaver.consumer.mode:record}' == 'keyed'}")
+    public void consumeRawDataKeyed(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer) {
+        for (ConsumerRecord<String, String> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            if (alreadyProcessed(record)) {
+                offsetTracker.dispatched(partition, record.offset()).completed(record.offset());
+                continue;
+            }
+            PayloadSummary summary = null;
+            long extractNanos = 0;
+            Object orderingKey;
+            if (orderByService) {
+                long extractStart = System.nanoTime();
+                summary = extract(record, extractStart);
+                extractNanos = System.nanoTime() - extractStart;
+                orderingKey = summary.getServiceName();
+            } else {
+                orderingKey = record.key() != null ? record.key() : partition;
+            }
+
+            OffsetTracker.PartitionOffsets offsets = offsetTracker.dispatched(partition, record.offset());
+            if (inFlightLimiter.acquire(partition)) {
+                log.info("⏸️ Pausing {} with {} records in flight", partition, inFlightLimiter.inFlight(partition));
+                keyedContainer().pausePartition(partition);
+            }
+
+            PayloadSummary extracted = summary;
+            long extractedNanos = extractNanos;
+            keyOrderedExecutor.execute(orderingKey, () -> processKeyed(record, extracted, extractedNanos, offsets)
+                .whenComplete((done, ex) -> {
+                    if (Boolean.TRUE.equals(done)) {
+                        offsets.completed(record.offset());
+                    }
+                    if (inFlightLimiter.release(partition) && !backlogPaused.contains(partition)) {
+                        log.info("▶️ Resuming {}", partition);
+                        keyedContainer().resumePartition(partition);
+                    }
+                }));
+        }
+        commitCompleted(consumer);
+    }
+
+    // Published on the consumer thread, so commits also advance while raw-data is quiet
+    @EventListener(condition = "event.listenerId.startsWith('raw-data-keyed')")
+    public void onKeyedIdle(ListenerContainerIdleEvent event) {
+        commitCompleted(event.getConsumer());
+    }
+
+    /**
+     * Process, persist and forward one record on its lane. Completes with true once the
+     * offset may be committed, or false if the partition was revoked before the row
+     * could be stored and forwarded. Time spent queued on the lane is not counted in
+     * processingTimeMs.
+     */
+    private CompletableFuture<Boolean> processKeyed(ConsumerRecord<String, String> record,
+                                                    PayloadSummary summary, long extractNanos,
+                                                    OffsetTracker.PartitionOffsets offsets) {
+        PayloadDiagnostics.Trace trace = payloadDiagnostics.start(record);
+        String step = IngestMetrics.FAILURE_PROCESS;
+        String serviceName = null;
+        try {
+            MessageMetadata metadata = summary != null
+                ? processRecord(record, summary, System.nanoTime() - extractNanos)
+                : processRecord(record);
+            serviceName = metadata.getServiceName();
+
+            step = IngestMetrics.FAILURE_PERSIST;
+            if (!persistOnLane(record, metadata, offsets)) {
+                payloadDiagnostics.finish(trace, serviceName);
+                return CompletableFuture.completedFuture(true);
+            }
+
+            step = IngestMetrics.FAILURE_SEND;
+            payloadDiagnostics.finish(trace, serviceName);
+            return forwardWithRetry(record, metadata, offsets, keyedMaxRetryBackoffMs, 1);
+        } catch (Exception e) {
+            boolean unstored = IngestMetrics.FAILURE_PERSIST.equals(step);
+            if (!unstored) {
+                // Failed attempts to store were counted by persistOnLane
+                ingestMetrics.failure(record.topic(), serviceName, step);
+            }
+            payloadDiagnostics.fail(trace, serviceName, step, e);
+            return CompletableFuture.completedFuture(!unstored);
+        }
+    }
+
+    /**
+     * persistOrSpill, retried on the record's lane with a growing back off while it fails
+     * transiently. Committing past the row would lose it, and leaving it incomplete would
+     * hold the partition's commit position for good. The lane waits meanwhile, so
+     * in-flight records of its partitions pile up to the limit and the partitions are
+     * paused. Gives up only once the partition is revoked or the lane is shut down.
+     * A row that fails permanently is dead-lettered instead, and returns false so its
+     * offset completes without a forward; a failed dead-letter publish is retried too.
+     */
+    private boolean persistOnLane(ConsumerRecord<String, String> record, MessageMetadata metadata,
+                                  OffsetTracker.PartitionOffsets offsets) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return persistOrSpill(metadata);
+            } catch (RuntimeException e) {
+                ingestMetrics.failure(metadata.getTopic(), metadata.getServiceName(), IngestMetrics.FAILURE_PERSIST);
+                if (!PersistFailures.isTransient(e)) {
+                    try {
+                        deadLetter(record, e);
+                        return false;
+                    } catch (RuntimeException publishFailure) {
+                        e.addSuppressed(publishFailure);
+                    }
+                }
+                if (offsets.isRevoked()) {
+                    throw e;
+                }
+                long backoff = Math.min(keyedMaxRetryBackoffMs, persistBackoffMs << Math.min(attempt - 1, 16));
+                log.error("❌ Failed to store message at partition={}, offset={} (attempt {}), retrying in {}ms: {}",
+                          metadata.getPartition(), metadata.getOffset(), attempt, backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forward a stored row, sending it again after a growing back off while the send
+     * fails, so its offset only completes once the broker has acknowledged the envelope.
+     * A redelivery of the record would be skipped as already stored, so an offset
+     * committed past a failed send would lose the forward. Completes with false, leaving
+     * the offset incomplete, if the partition is revoked first.
+     */
+    private CompletableFuture<Boolean> forwardWithRetry(ConsumerRecord<String, String> record, MessageMetadata metadata,
+                                                        OffsetTracker.PartitionOffsets offsets, long maxBackoffMs,
+                                                        int attempt) {
+        CompletableFuture<?> forwarded;
+        try {
+            forwarded = forwardNormalized(metadata);
+        } catch (RuntimeException e) {
+            ingestMetrics.failure(metadata.getTopic(), metadata.getServiceName(), IngestMetrics.FAILURE_SEND);
+            forwarded = CompletableFuture.failedFuture(e);
+        }
+        return forwarded.handle((result, ex) -> {
+            if (ex == null) {
+                return CompletableFuture.completedFuture(true);
+            }
+            if (offsets.isRevoked()) {
+                log.error("❌ Failed to forward message at partition={}, offset={}, partition revoked: {}",
+                          record.partition(), record.offset(), ex.getMessage());
+                return CompletableFuture.completedFuture(false);
+            }
+            long backoff = Math.min(maxBackoffMs, persistBackoffMs << Math.min(attempt - 1, 16));
+            log.error("❌ Failed to forward message at partition={}, offset={} (attempt {}), retrying in {}ms: {}",
+                      record.partition(), record.offset(), attempt, backoff, ex.getMessage());
+            return CompletableFuture.supplyAsync(() -> forwardWithRetry(record, metadata, offsets, maxBackoffMs, attempt + 1),
+                    CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS))
+                .thenCompose(resent -> resent);
+        }).thenCompose(done -> done);
+    }
+
+    private void commitCompleted(Consumer<?, ?> consumer) {
+        limitBacklog(consumer);
+        commitTracked(consumer);
+    }
+
+    // Commit the positions OffsetTracker advanced; keyed and pipelined modes
+    private void commitTracked(Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> commits = offsetTracker.committable(consumer.assignment());
+        if (!commits.isEmpty()) {
+            consumer.commitAsync(commits, (offsets, ex) -> {
+                if (ex != null) {
+                    log.warn("⚠️ Offset commit failed for {}: {}", offsets.keySet(), ex.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Pause a keyed partition while its commit position lags too far behind the records
+     * dispatched after it, e.g. behind a row being retried on its lane; completed records
+     * are held until the gap closes. Resumed once the backlog halves, unless the
+     * in-flight limit still holds it. Called on the consumer thread.
+     */
+    private void limitBacklog(Consumer<?, ?> consumer) {
+        for (TopicPartition partition : consumer.assignment()) {
+            int pending = offsetTracker.pending(partition);
+            if (pending >= keyedMaxPending) {
+                // Re-requested if the in-flight limiter resumed it meanwhile
+                if (backlogPaused.add(partition) || !keyedContainer().isPartitionPauseRequested(partition)) {
+                    log.warn("⏸️ Pausing {} with {} records behind its commit position", partition, pending);
+                    keyedContainer().pausePartition(partition);
+                }
+            } else if (pending <= keyedMaxPending / 2 && backlogPaused.remove(partition)
+                       && !inFlightLimiter.isPaused(partition)) {
+                log.info("▶️ Resuming {}", partition);
+                keyedContainer().resumePartition(partition);
+            }
+        }
+    }
+
+    /**
+     * Bytes mode: the payload stays a byte[] from the consumer to the normalized topic.
+     * The envelope is spliced at byte level and is byte-identical to normalizeData.
+     * Only the TEXT columns of the metadata row are decoded.
+     */
+    @KafkaListener(topics = "raw-data", groupId = "streamweaver-group",
+                   containerFactory = "byteArrayKafkaListenerContainerFactory",
+                   autoStartup = "#{'${streamweaver.consumer.mode:record}' == 'bytes'}")
+    public void consumeRawBytes(ConsumerRecord<String, byte[]> record) {
+        if (alreadyProcessed(record)) {
+            return;
+        }
+        PayloadDiagnostics.Trace trace = payloadDiagnostics.start(record);
+        String step = IngestMetrics.FAILURE_PROCESS;
+        String serviceName = null;
+        MessageMetadata metadata = null;
+        try {
+            byte[] payload = record.value();
+            byte[] normalized;
+            metadata = retainedRow(record);
+            if (metadata != null) {
+                // Built by an earlier attempt whose write failed; splicing the envelope again is cheap
+                serviceName = metadata.getServiceName();
+                normalized = normalizedEnvelopeWriter.wrap(payload, metadata.getProcessedAt());
+            } else {
+                long startTime = System.nanoTime();
+                PayloadSummary summary = payloadExtractor.extract(payload);
+                ingestMetrics.record(IngestMetrics.Stage.EXTRACT, record.topic(), startTime);
+                serviceName = summary.getServiceName();
+
+                SchemaVersion schemaVersion = checkSchema(record.topic(), summary, () -> payloadExtractor.describe(payload));
+
+                long normalizeStart = System.nanoTime();
+                Instant normalizedAt = Instant.now();
+                normalized = normalizedEnvelopeWriter.wrap(payload, normalizedAt);
+                ingestMetrics.record(IngestMetrics.Stage.NORMALIZE, record.topic(), normalizeStart);
+                long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+                metadata = buildMetadata(record, summary, schemaVersion,
+                    payload != null ? new String(payload, StandardCharsets.UTF_8) : null,
+                    new String(normalized, StandardCharsets.UTF_8), normalizedAt, processingTime);
+            }
+
+            step = IngestMetrics.FAILURE_PERSIST;
+            if (persistOrSpill(metadata)) {
+                step = IngestMetrics.FAILURE_SEND;
+                if (avroOutput) {
+                    forwardNormalized(metadata);
+                } else {
+                    forward(byteArrayKafkaTemplate, normalized, record.topic(), serviceName);
+                }
+            }
+            payloadDiagnostics.finish(trace, serviceName);
+
+        } catch (Exception e) {
+            ingestMetrics.failure(record.topic(), serviceName, step);
+            payloadDiagnostics.fail(trace, serviceName, step, e);
+            rethrowIfUnstored(step, e, record, metadata);
+        }
+    }
+
+    /**
+     * Keep the rows built from records whose write failed, for the error handler's retry
+     */
+    private void retain(List<? extends ConsumerRecord<String, ?>> records, List<MessageMetadata> rows) {
+        retain(records, rows, List.of());
+    }
+
+    /**
+     * Keep the rows still to be written, and the rows already stored but not yet
+     * forwarded, of records for the error handler's retry
+     */
+    private void retain(List<? extends ConsumerRecord<String, ?>> records, List<MessageMetadata> rows,
+                        List<MessageMetadata> unforwarded) {
+        ConsumerRecord<String, ?> first = records.get(0);
+        retainedRows.set(new RetainedRows(first.topic(), first.partition(), first.offset(), records.size(),
+                                          rows, unforwarded));
+    }
+
+    /**
+     * Rows retained for exactly these records on this thread, or null; retained rows are
+     * dropped either way, since the container only redelivers the poll that failed last
+     */
+    private RetainedRows retained(List<? extends ConsumerRecord<String, ?>> records) {
+        RetainedRows retained = retainedRows.get();
+        if (retained == null) {
+            return null;
+        }
+        retainedRows.remove();
+        ConsumerRecord<String, ?> first = records.get(0);
+        boolean same = retained.topic().equals(first.topic()) && retained.partition() == first.partition()
+            && retained.offset() == first.offset() && retained.count() == records.size();
+        return same ? retained : null;
+    }
+
+    private MessageMetadata retainedRow(ConsumerRecord<String, ?> record) {
+        RetainedRows retained = retained(List.of(record));
+        return retained != null ? retained.rows().get(0) : null;
+    }
+
+    private record RetainedRows(String topic, int partition, long offset, int count,
+                                List<MessageMetadata> rows, List<MessageMetadata> unforwarded) {
+    }
+
+    /**
+     * Redelivered record whose offset is already stored; checked before the payload is parsed
+     */
+    private boolean alreadyProcessed(ConsumerRecord<String, ?> record) {
+        if (!processedOffsets.isProcessed(record.topic(), record.partition(), record.offset())) {
+            return false;
+        }
+        ingestMetrics.duplicate(record.topic());
+        log.debug("Skipping already stored record at partition={}, offset={}", record.partition(), record.offset());
+        return true;
+    }
+
+    /**
+     * Extract, check schema and normalize a single record into an unsaved metadata row
+     */
+    private MessageMetadata processRecord(ConsumerRecord<String, String> record) {
+        long startTime = System.nanoTime();
+        return processRecord(record, extract(record, startTime), startTime);
+    }
+
+    // Extract metadata and infer schema in a single pass
+    private PayloadSummary extract(ConsumerRecord<String, String> record, long startTime) {
+        PayloadSummary summary = payloadExtractor.extract(record.value());
+        ingestMetrics.record(IngestMetrics.Stage.EXTRACT, record.topic(), startTime);
+        return summary;
+    }
+
+    private MessageMetadata processRecord(ConsumerRecord<String, String> record, PayloadSummary summary, long startTime) {
+        // Check schema, registering a new version on drift
+        SchemaVersion schemaVersion = checkSchema(record.topic(), summary, () -> payloadExtractor.describe(record.value()));
+
+        // Normalize data
+        long normalizeStart = System.nanoTime();
+        Instant normalizedAt = Instant.now();
+        String normalized = normalizeData(record.value(), normalizedAt);
+        ingestMetrics.record(IngestMetrics.Stage.NORMALIZE, record.topic(), normalizeStart);
+
+        // Calculate processing time
+        long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        return buildMetadata(record, summary, schemaVersion, record.value(), normalized, normalizedAt, processingTime);
+    }
+
+    /**
+     * Compare the payload's structural hash with the subject's latest version; the
+     * readable schema is only built when a new version has to be registered
+     */
+    private SchemaVersion checkSchema(String topic, PayloadSummary summary, Supplier<String> describeSchema) {
+        String serviceName = summary.getServiceName();
+        String subject = serviceName != null ? serviceName + "-schema" : "default-schema";
+
+        long lookupStart = System.nanoTime();
+        boolean schemaDriftDetected = schemaRegistryService.detectSchemaDrift(subject, summary.getStructureHash());
+        ingestMetrics.record(IngestMetrics.Stage.DRIFT_LOOKUP, topic, lookupStart);
+
+        // Register new schema version if drift detected
+        if (schemaDriftDetected) {
+            ingestMetrics.schemaDrift(topic, serviceName);
+            long registerStart = System.nanoTime();
+            SchemaVersion registered = schemaRegistryService.registerSchema(subject, describeSchema.get(), "ayoublasfar");
+            ingestMetrics.record(IngestMetrics.Stage.REGISTER, topic, registerStart);
+            return registered;
+        }
+        return null;
+    }
+
+    private MessageMetadata buildMetadata(ConsumerRecord<String, ?> record, PayloadSummary summary,
+                                          SchemaVersion schemaVersion, String rawMessage,
+                                          String normalizedMessage, Instant normalizedAt, long processingTime) {
+        return MessageMetadata.builder()
+            .messageKey(record.key())
+            .topic(record.topic())
+            .partition(record.partition())
+            .offset(record.offset())
+            .rawMessage(rawMessage)
+            .normalizedMessage(normalizedMessage)
+            .serviceName(summary.getServiceName())
+            .logLevel(summary.getLogLevel())
+            .schemaVersion(schemaVersion != null ? schemaVersion.getVersion().toString() : "1")
+            .schemaId(schemaVersion != null ? schemaVersion.getSchemaId() : null)
+            .processingTimeMs(processingTime)
+            .processedAt(normalizedAt)
+            .createdBy("ayoublasfar")
+            .structureHash(summary.getStructureHash())
+            .eventTime(record.timestamp())
+            .build();
+    }
+
+    // Null when a row for the same offset was already stored
+    private MessageMetadata persist(MessageMetadata metadata) {
+        long start = System.nanoTime();
+        MessageMetadata saved = save(metadata);
+        ingestMetrics.record(IngestMetrics.Stage.PERSIST, metadata.getTopic(), start);
+        return saved;
+    }
+
+    /**
+     * Write the row to Postgres, or to the local spill log when the write fails
+     * transiently or earlier rows are still waiting there, so a stalled database does
+     * not hold up the listener. A row that fails permanently is not spilled, since its
+     * replay would fail the same way. Only throws if the row was not stored. Returns
+     * false if a row for the same offset was already stored, which is then not forwarded again.
+     */
+    private boolean persistOrSpill(MessageMetadata metadata) {
+        if (!spillLog.hasBacklog()) {
+            try {
+                MessageMetadata saved = persist(metadata);
+                if (saved == null) {
+                    onDuplicate(metadata);
+                    return false;
+                }
+                onPersisted(saved);
+                return true;
+            } catch (RuntimeException e) {
+                if (!spillLog.isEnabled() || !PersistFailures.isTransient(e)) {
+                    throw e;
+                }
+                log.warn("⚠️ PostgreSQL write failed, spilling to local log: {}", e.getMessage());
+            }
+        }
+        spill(List.of(metadata));
+        return true;
+    }
+
+    /**
+     * Append rows to the spill log; returns once they are fsynced, SpillReplayer writes them to Postgres later
+     */
+    private void spill(List<MessageMetadata> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            spillLog.append(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill " + rows.size() + " rows", e);
+        }
+        ingestMetrics.record(IngestMetrics.Stage.SPILL, rows.get(0).getTopic(), start);
+        ingestMetrics.spilled(rows.get(0).getTopic(), rows.size());
+        rows.forEach(m -> {
+            processedOffsets.markProcessed(m.getTopic(), m.getPartition(), m.getOffset());
+            recentMessageIndex.add(m);
+            windowAggregator.record(m);
+        });
+    }
+
+    /**
+     * A row that reached neither Postgres nor the spill log must not have its offset
+     * committed silently. A transient failure is rethrown to the container's error
+     * handler, which seeks back and retries the record, and the row is kept so the retry
+     * does not extract and register again. Any other failure is rethrown as
+     * PersistFailures.Permanent, which the error handler dead-letters without retrying.
+     */
+    private void rethrowIfUnstored(String step, Exception e, ConsumerRecord<String, ?> record, MessageMetadata row) {
+        if (IngestMetrics.FAILURE_PERSIST.equals(step)) {
+            RuntimeException failure = PersistFailures.classify(e);
+            if (failure instanceof PersistFailures.Permanent) {
+                log.error("❌ Record at partition={}, offset={} cannot be stored, sending it to {}{}: {}",
+                          record.partition(), record.offset(), record.topic(), PersistFailures.DEAD_LETTER_SUFFIX,
+                          e.getMessage());
+            } else {
+                retain(List.of(record), List.of(row));
+            }
+            throw failure;
+        }
+    }
+
+    // Insert-on-conflict through JDBC, so a replayed offset is a no-op rather than a duplicate row
+    private MessageMetadata save(MessageMetadata metadata) {
+        return messageMetadataBatchRepository.insert(metadata);
+    }
+
+    /**
+     * Forward a row's payload to the normalized topic as a JSON envelope, or as Avro
+     * binary when streamweaver.output.format is avro
+     */
+    private CompletableFuture<?> forwardNormalized(MessageMetadata metadata) {
+        if (avroOutput) {
+            long encodeStart = System.nanoTime();
+            byte[] encoded = avroEnvelopeEncoder.encode(metadata.getServiceName(), metadata.getStructureHash(),
+                metadata.getRawMessage(), metadata.getProcessedAt());
+            ingestMetrics.record(IngestMetrics.Stage.AVRO_ENCODE, metadata.getTopic(), encodeStart);
+            return forward(byteArrayKafkaTemplate, encoded, metadata.getTopic(), metadata.getServiceName());
+        }
+        return forward(kafkaTemplate, metadata.getNormalizedMessage(), metadata.getTopic(), metadata.getServiceName());
+    }
+
+    /**
+     * Send to the normalized topic, timing until the broker acknowledges the write
+     */
+    private <V> CompletableFuture<?> forward(KafkaTemplate<String, V> template, V value,
+                                              String topic, String serviceName) {
+        long start = System.nanoTime();
+        return template.send("normalized-data", value).whenComplete((result, ex) -> {
+            if (ex != null) {
+                ingestMetrics.failure(topic, serviceName, IngestMetrics.FAILURE_SEND);
+            } else {
+                ingestMetrics.record(IngestMetrics.Stage.SEND_ACK, topic, start);
+            }
+        });
+    }
+
+    /**
+     * Pipelined persistence on the persist executor: a transient failure is retried up to
+     * persist-attempts times, then the row is spilled if the spill log is enabled. A row
+     * that fails permanently is dead-lettered. Returns true if the row was stored and is
+     * to be forwarded, false if it was already stored or was dead-lettered. Throws if it
+     * reached neither Postgres nor the spill log, or its dead-letter publish failed.
+     */
+    private boolean persistWithRetry(ConsumerRecord<String, String> record, MessageMetadata metadata) {
+        if (spillLog.hasBacklog()) {
+            spill(List.of(metadata));
+            return true;
+        }
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                MessageMetadata saved = save(metadata);
+                ingestMetrics.record(IngestMetrics.Stage.PERSIST, metadata.getTopic(), start);
+                if (saved == null) {
+                    onDuplicate(metadata);
+                    return false;
+                }
+                onPersisted(saved);
+                return true;
+            } catch (RuntimeException e) {
+                if (!PersistFailures.isTransient(e)) {
+                    ingestMetrics.failure(metadata.getTopic(), metadata.getServiceName(), IngestMetrics.FAILURE_PERSIST);
+                    deadLetter(record, e);
+                    return false;
+                }
+                if (attempt >= persistAttempts) {
+                    if (spillLog.isEnabled()) {
+                        log.warn("⚠️ PostgreSQL write failed after {} attempts, spilling to local log: {}", attempt, e.getMessage());
+                        try {
+                            spill(List.of(metadata));
+                            return true;
+                        } catch (RuntimeException spillFailure) {
+                            e.addSuppressed(spillFailure);
+                        }
+                    }
+                    ingestMetrics.failure(metadata.getTopic(), metadata.getServiceName(), IngestMetrics.FAILURE_PERSIST);
+                    throw e;
+                }
+                try {
+                    Thread.sleep(persistBackoffMs * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Post-persistence bookkeeping shared by every consumer mode
+     */
+    private void onPersisted(MessageMetadata metadata) {
+        topicStatsService.record(metadata.getTopic(), metadata.getServiceName(), metadata.getProcessingTimeMs());
+        processedOffsets.markProcessed(metadata.getTopic(), metadata.getPartition(), metadata.getOffset());
+        recentMessageIndex.add(metadata);
+        windowAggregator.record(metadata);
+    }
+
+    private void onDuplicate(MessageMetadata metadata) {
+        ingestMetrics.duplicate(metadata.getTopic());
+        processedOffsets.markProcessed(metadata.getTopic(), metadata.getPartition(), metadata.getOffset());
+    }
+
+    private MessageListenerContainer pipelinedContainer() {
+        return kafkaListenerEndpointRegistry.getListenerContainer("raw-data-pipelined");
+    }
+
+    private MessageListenerContainer keyedContainer() {
+        return kafkaListenerEndpointRegistry.getListenerContainer("raw-data-keyed");
+    }
+
+    public String normalizeData(String rawData) {
+        return normalizeData(rawData, Instant.now());
+    }
+
+    // processedAt is set to normalizedAt, so compressed rows can rebuild the exact envelope
+    String normalizeData(String rawData, Instant normalizedAt) {
+        return NormalizedEnvelopeWriter.toJson(rawData, normalizedAt);
+    }
+}
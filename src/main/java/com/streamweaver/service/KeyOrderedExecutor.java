@@ -0,0 +1,68 @@
+package com.streamweaver.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed set of single-threaded lanes; tasks with equal ordering keys always run on the
+ * same lane, so they execute one at a time in submission order while tasks with
+ * different keys run in parallel across lanes.
+ */
+@Service
+@Slf4j
+public class KeyOrderedExecutor {
+
+    @Value("${streamweaver.consumer.keyed.lanes:0}")
+    private int configuredLanes;
+
+    private ExecutorService[] lanes;
+
+    @PostConstruct
+    void start() {
+        int count = configuredLanes > 0 ? configuredLanes : Runtime.getRuntime().availableProcessors();
+        lanes = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            String name = "sw-keyed-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Run the task on the lane owning orderingKey
+     */
+    public void execute(Object orderingKey, Runnable task) {
+        lanes[lane(orderingKey)].execute(task);
+    }
+
+    public int lanes() {
+        return lanes.length;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            if (!lane.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Keyed lane did not drain within 30s, {} tasks dropped", lane.shutdownNow().size());
+            }
+        }
+    }
+
+    private int lane(Object orderingKey) {
+        int hash = orderingKey.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+}
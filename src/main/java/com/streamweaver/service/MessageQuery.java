@@ -0,0 +1,23 @@
+package com.streamweaver.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Filter and keyset cursor for message_metadata reads. At most one of topic,
+ * serviceName and logLevel is set; null bounds mean an open range.
+ */
+@Value
+@Builder
+public class MessageQuery {
+
+    String topic;
+    String serviceName;
+    String logLevel;
+    Long afterId;
+    Instant from;
+    Instant to;
+    Integer limit;
+}
@@ -0,0 +1,253 @@
+package com.streamweaver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.streamweaver.entity.MessageMetadata;
+import com.streamweaver.repository.MessageMetadataRepository;
+import com.streamweaver.repository.ReadRoutingDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Bounded reads of message_metadata: keyset pages of payload-free summaries ordered
+ * by id, full rows by id, NDJSON streaming over a server-side cursor, and newest-first
+ * recent summaries served from RecentMessageIndex. Memory use does not depend on
+ * result size. Every read runs on the isolated read pool.
+ */
+@Service
+@Slf4j
+public class MessageQueryService {
+
+    private static final Instant MIN_INSTANT = Instant.EPOCH;
+    private static final Instant MAX_INSTANT = Instant.parse("9999-12-31T23:59:59Z");
+    private static final int FLUSH_EVERY = 256;
+    private static final String SOURCE_MEMORY = "memory";
+    private static final String SOURCE_DATABASE = "database";
+    private static final Comparator<MessageSummary> NEWEST_FIRST = Comparator
+        .comparing(MessageSummary::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+        .thenComparing(MessageSummary::getId, Comparator.nullsFirst(Comparator.reverseOrder()));
+
+    @Value("${streamweaver.api.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${streamweaver.api.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Autowired
+    private MessageMetadataRepository messageMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RecentMessageIndex recentMessageIndex;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * One keyset page; nextCursor is set when more rows may follow
+     */
+    @Transactional(transactionManager = ReadRoutingDataSource.READ_TRANSACTION_MANAGER, readOnly = true)
+    public MessagePage page(MessageQuery query) {
+        int limit = query.getLimit() != null
+            ? Math.max(1, Math.min(query.getLimit(), maxPageSize))
+            : defaultPageSize;
+        Pageable pageable = PageRequest.of(0, limit);
+        long afterId = afterId(query);
+        Instant from = from(query);
+        Instant to = to(query);
+
+        List<MessageSummary> messages;
+        if (query.getTopic() != null) {
+            messages = messageMetadataRepository.findPageByTopic(query.getTopic(), afterId, from, to, pageable);
+        } else if (query.getServiceName() != null) {
+            messages = messageMetadataRepository.findPageByServiceName(query.getServiceName(), afterId, from, to, pageable);
+        } else if (query.getLogLevel() != null) {
+            messages = messageMetadataRepository.findPageByLogLevel(query.getLogLevel(), afterId, from, to, pageable);
+        } else {
+            messages = messageMetadataRepository.findPage(afterId, from, to, pageable);
+        }
+
+        Long nextCursor = messages.size() == limit ? messages.get(messages.size() - 1).getId() : null;
+        return new MessagePage(messages, nextCursor);
+    }
+
+    /**
+     * One full row, payloads included; the shared payload is loaded here, not by the serializer
+     */
+    @Transactional(transactionManager = ReadRoutingDataSource.READ_TRANSACTION_MANAGER, readOnly = true)
+    public Optional<MessageMetadata> findById(long id) {
+        return messageMetadataRepository.findWithPayloadById(id);
+    }
+
+    /**
+     * Write every matching row as one JSON line. The persistence context is cleared with
+     * every flush, so it never holds more than FLUSH_EVERY rows and their shared payloads.
+     */
+    @Transactional(transactionManager = ReadRoutingDataSource.READ_TRANSACTION_MANAGER, readOnly = true)
+    public long streamNdjson(MessageQuery query, OutputStream out) throws IOException {
+        long written = 0;
+        try (Stream<MessageMetadata> rows = openStream(query)) {
+            Iterator<MessageMetadata> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                MessageMetadata message = iterator.next();
+                out.write(objectMapper.writeValueAsBytes(message));
+                out.write('\n');
+
+                if (++written % FLUSH_EVERY == 0) {
+                    out.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Newest-first summaries created at or after since. When this instance owns every
+     * partition involved, the hot tier answers for the range it covers and only the older
+     * range is read from Postgres once it runs out before limit. Otherwise other instances
+     * store rows for the same range, so the whole range is read from Postgres and merged
+     * with the hot tier, which still adds rows not yet visible there (spilled, or not yet
+     * replicated to the read pool).
+     */
+    @Transactional(transactionManager = ReadRoutingDataSource.READ_TRANSACTION_MANAGER, readOnly = true)
+    public RecentMessages recent(String topic, String serviceName, String logLevel, Instant since, Integer limit) {
+        int size = limit != null ? Math.max(1, Math.min(limit, maxPageSize)) : defaultPageSize;
+        RecentMessageIndex.Result hot = recentMessageIndex.query(topic, serviceName, logLevel, since, size);
+
+        List<MessageSummary> messages = new ArrayList<>(hot.messages());
+        Instant from = since != null ? since : MIN_INSTANT;
+        boolean fromMemory = !messages.isEmpty();
+        if (!hot.complete()) {
+            List<MessageSummary> stored = olderSummaries(topic, serviceName, logLevel, from, MAX_INSTANT, size);
+            return new RecentMessages(merge(messages, stored, size),
+                                      fromMemory ? SOURCE_MEMORY + "," + SOURCE_DATABASE : SOURCE_DATABASE);
+        }
+
+        // Everything before coveredFrom
+        Instant before = hot.coveredFrom();
+        if (messages.size() == size || !from.isBefore(before)) {
+            return new RecentMessages(messages, SOURCE_MEMORY);
+        }
+        messages.addAll(olderSummaries(topic, serviceName, logLevel, from, before, size - messages.size()));
+        return new RecentMessages(messages, fromMemory ? SOURCE_MEMORY + "," + SOURCE_DATABASE : SOURCE_DATABASE);
+    }
+
+    // Newest-first union of two newest-first lists, one entry per stored offset, at most limit
+    private static List<MessageSummary> merge(List<MessageSummary> hot, List<MessageSummary> stored, int limit) {
+        List<MessageSummary> merged = new ArrayList<>(hot.size() + stored.size());
+        merged.addAll(hot);
+        merged.addAll(stored);
+        merged.sort(NEWEST_FIRST);
+
+        Set<List<Object>> seen = new HashSet<>();
+        List<MessageSummary> messages = new ArrayList<>(Math.min(limit, merged.size()));
+        for (MessageSummary message : merged) {
+            if (messages.size() == limit) {
+                break;
+            }
+            if (seen.add(Arrays.asList(message.getTopic(), message.getPartition(), message.getOffset()))) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    private List<MessageSummary> olderSummaries(String topic, String serviceName, String logLevel,
+                                                Instant from, Instant before, int limit) {
+        StringBuilder jpql = new StringBuilder(MessageMetadataRepository.SELECT_SUMMARY)
+            .append("WHERE m.createdAt >= :from AND m.createdAt < :before");
+        if (topic != null) {
+            jpql.append(" AND m.topic = :topic");
+        }
+        if (serviceName != null) {
+            jpql.append(" AND m.serviceName = :serviceName");
+        }
+        if (logLevel != null) {
+            jpql.append(" AND m.logLevel = :logLevel");
+        }
+        jpql.append(" ORDER BY m.createdAt DESC, m.id DESC");
+
+        TypedQuery<MessageSummary> query = entityManager.createQuery(jpql.toString(), MessageSummary.class)
+            .setParameter("from", from)
+            .setParameter("before", before)
+            .setMaxResults(limit);
+        if (topic != null) {
+            query.setParameter("topic", topic);
+        }
+        if (serviceName != null) {
+            query.setParameter("serviceName", serviceName);
+        }
+        if (logLevel != null) {
+            query.setParameter("logLevel", logLevel);
+        }
+        return query.getResultList();
+    }
+
+    private Stream<MessageMetadata> openStream(MessageQuery query) {
+        long afterId = afterId(query);
+        Instant from = from(query);
+        Instant to = to(query);
+
+        if (query.getTopic() != null) {
+            return messageMetadataRepository.streamByTopic(query.getTopic(), afterId, from, to);
+        }
+        if (query.getServiceName() != null) {
+            return messageMetadataRepository.streamByServiceName(query.getServiceName(), afterId, from, to);
+        }
+        if (query.getLogLevel() != null) {
+            return messageMetadataRepository.streamByLogLevel(query.getLogLevel(), afterId, from, to);
+        }
+        return messageMetadataRepository.streamAll(afterId, from, to);
+    }
+
+    private static long afterId(MessageQuery query) {
+        return query.getAfterId() != null ? query.getAfterId() : 0L;
+    }
+
+    private static Instant from(MessageQuery query) {
+        return query.getFrom() != null ? query.getFrom() : MIN_INSTANT;
+    }
+
+    private static Instant to(MessageQuery query) {
+        return query.getTo() != null ? query.getTo() : MAX_INSTANT;
+    }
+
+    @lombok.Value
+    public static class MessagePage {
+        List<MessageSummary> messages;
+        Long nextCursor;
+    }
+
+    /**
+     * servedFrom is memory, database, or memory,database when the hot tier had matches and Postgres was read too
+     */
+    @lombok.Value
+    public static class RecentMessages {
+        List<MessageSummary> messages;
+        String servedFrom;
+    }
+}
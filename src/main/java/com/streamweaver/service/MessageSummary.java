@@ -0,0 +1,24 @@
+package com.streamweaver.service;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A message_metadata row without its payload columns
+ */
+@Value
+public class MessageSummary {
+
+    Long id;
+    String messageKey;
+    String topic;
+    Integer partition;
+    Long offset;
+    String serviceName;
+    String logLevel;
+    String schemaVersion;
+    Long processingTimeMs;
+    Instant createdAt;
+    Instant processedAt;
+}
@@ -0,0 +1,138 @@
+package com.streamweaver.service;
+
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Byte-level writer for the normalized envelope.
+ *
+ * Produces exactly the bytes of
+ * {"data":&lt;payload&gt;,"normalized_at":"&lt;Instant.toString()&gt;","version":"1.0"}
+ * by splicing the raw payload between precomputed prefix and suffix bytes, so the
+ * payload is copied once and never decoded into a String.
+ */
+@Service
+public class NormalizedEnvelopeWriter {
+
+    private static final byte[] PREFIX = "{\"data\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TIMESTAMP_PREFIX = ",\"normalized_at\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SUFFIX = "\",\"version\":\"1.0\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL_PAYLOAD = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final TimestampEncoder timestampEncoder = new TimestampEncoder();
+
+    /**
+     * String form of the same envelope, as built by the String consumer modes
+     */
+    public static String toJson(String payload, Instant normalizedAt) {
+        return String.format("{\"data\":%s,\"normalized_at\":\"%s\",\"version\":\"1.0\"}",
+                             payload, normalizedAt);
+    }
+
+    public byte[] wrap(byte[] payload) {
+        return wrap(payload, Instant.now());
+    }
+
+    public byte[] wrap(byte[] payload, Instant normalizedAt) {
+        byte[] data = payload != null ? payload : NULL_PAYLOAD;
+        int timestampLength = timestampEncoder.length(normalizedAt);
+        byte[] out = new byte[PREFIX.length + data.length + TIMESTAMP_PREFIX.length
+                              + timestampLength + SUFFIX.length];
+
+        int pos = 0;
+        System.arraycopy(PREFIX, 0, out, pos, PREFIX.length);
+        pos += PREFIX.length;
+        System.arraycopy(data, 0, out, pos, data.length);
+        pos += data.length;
+        System.arraycopy(TIMESTAMP_PREFIX, 0, out, pos, TIMESTAMP_PREFIX.length);
+        pos += TIMESTAMP_PREFIX.length;
+        pos = timestampEncoder.encode(normalizedAt, out, pos);
+        System.arraycopy(SUFFIX, 0, out, pos, SUFFIX.length);
+        return out;
+    }
+
+    /**
+     * ASCII encoder matching Instant.toString(). The "yyyy-MM-ddTHH:mm:ss" part only
+     * changes once per second, so it is cached and only the fraction is written per call.
+     */
+    static class TimestampEncoder {
+
+        private static final int SECONDS_LENGTH = 19;
+
+        private volatile CachedSecond cachedSecond = new CachedSecond(Long.MIN_VALUE, null);
+
+        int length(Instant instant) {
+            if (!isFourDigitYear(instant)) {
+                return instant.toString().length();
+            }
+            return SECONDS_LENGTH + fractionLength(instant.getNano()) + 1;
+        }
+
+        int encode(Instant instant, byte[] out, int pos) {
+            if (!isFourDigitYear(instant)) {
+                byte[] fallback = instant.toString().getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(fallback, 0, out, pos, fallback.length);
+                return pos + fallback.length;
+            }
+
+            byte[] seconds = secondsPrefix(instant.getEpochSecond());
+            System.arraycopy(seconds, 0, out, pos, SECONDS_LENGTH);
+            pos += SECONDS_LENGTH;
+
+            int nano = instant.getNano();
+            int fractionLength = fractionLength(nano);
+            if (fractionLength > 0) {
+                out[pos++] = '.';
+                int digits = fractionLength - 1;
+                int value = digits == 3 ? nano / 1_000_000 : digits == 6 ? nano / 1_000 : nano;
+                for (int i = digits - 1; i >= 0; i--) {
+                    out[pos + i] = (byte) ('0' + value % 10);
+                    value /= 10;
+                }
+                pos += digits;
+            }
+            out[pos++] = 'Z';
+            return pos;
+        }
+
+        private byte[] secondsPrefix(long epochSecond) {
+            CachedSecond cached = cachedSecond;
+            if (cached.epochSecond != epochSecond) {
+                LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+                String text = String.format("%04d-%02d-%02dT%02d:%02d:%02d",
+                    time.getYear(), time.getMonthValue(), time.getDayOfMonth(),
+                    time.getHour(), time.getMinute(), time.getSecond());
+                cached = new CachedSecond(epochSecond, text.getBytes(StandardCharsets.US_ASCII));
+                cachedSecond = cached;
+            }
+            return cached.bytes;
+        }
+
+        // Instant.toString() prints 0, 3, 6 or 9 fraction digits, plus the dot
+        private static int fractionLength(int nano) {
+            if (nano == 0) return 0;
+            if (nano % 1_000_000 == 0) return 4;
+            if (nano % 1_000 == 0) return 7;
+            return 10;
+        }
+
+        private static boolean isFourDigitYear(Instant instant) {
+            long epochSecond = instant.getEpochSecond();
+            return epochSecond >= -62167219200L && epochSecond < 253402300800L;
+        }
+
+        private static final class CachedSecond {
+            final long epochSecond;
+            final byte[] bytes;
+
+            CachedSecond(long epochSecond, byte[] bytes) {
+                this.epochSecond = epochSecond;
+                this.bytes = bytes;
+            }
+        }
+    }
+}
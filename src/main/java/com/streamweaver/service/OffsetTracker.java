@@ -0,0 +1,129 @@
+package com.streamweaver.service;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Highest contiguous completed offset per partition, for records that complete out of order.
+ *
+ * Offsets are registered in poll order as they are dispatched and may complete in any
+ * order; a partition's commit position only advances past an offset once it and every
+ * earlier dispatched offset have completed. Dispatch returns the partition's state, and
+ * completions are reported against that object, so work that finishes after its
+ * partition was revoked can never move the position of a later assignment. A partition
+ * sought back to an unfinished offset is rewound, so redelivered records are tracked
+ * once.
+ */
+@Service
+public class OffsetTracker {
+
+    private final ConcurrentMap<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Register an offset handed to a worker; report its completion on the returned state
+     */
+    public PartitionOffsets dispatched(TopicPartition partition, long offset) {
+        PartitionOffsets offsets = partitions.computeIfAbsent(partition, p -> new PartitionOffsets());
+        offsets.dispatched(offset);
+        return offsets;
+    }
+
+    /**
+     * Commit positions that advanced since the last call, limited to the given (assigned) partitions
+     */
+    public Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> assigned) {
+        Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+        for (TopicPartition partition : assigned) {
+            PartitionOffsets offsets = partitions.get(partition);
+            if (offsets != null) {
+                long position = offsets.takeCommitPosition();
+                if (position >= 0) {
+                    commits.put(partition, new OffsetAndMetadata(position));
+                }
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Drop state for partitions that are no longer assigned; their pending work is replayed by the next owner
+     */
+    public void revoke(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            PartitionOffsets offsets = partitions.remove(partition);
+            if (offsets != null) {
+                offsets.revoked = true;
+            }
+        }
+    }
+
+    public int pending(TopicPartition partition) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets != null ? offsets.pending() : 0;
+    }
+
+    public static final class PartitionOffsets {
+
+        private final ArrayDeque<Long> dispatched = new ArrayDeque<>();
+        private final Set<Long> completed = new HashSet<>();
+        private long commitPosition = -1;
+        private long committedPosition = -1;
+        private volatile boolean revoked;
+
+        synchronized void dispatched(long offset) {
+            dispatched.addLast(offset);
+        }
+
+        /**
+         * Mark an offset done and advance the commit position over the completed prefix
+         */
+        public synchronized void completed(long offset) {
+            if (offset < commitPosition) {
+                // A record that completed again after a rewind, already committed past
+                return;
+            }
+            completed.add(offset);
+            while (!dispatched.isEmpty() && completed.remove(dispatched.peekFirst())) {
+                commitPosition = dispatched.pollFirst() + 1;
+            }
+        }
+
+        /**
+         * The partition was sought back to this offset: it and every later dispatched offset
+         * are dispatched again when redelivered. Completions already reported for them are
+         * kept, since their rows are stored.
+         */
+        synchronized void rewind(long offset) {
+            dispatched.removeIf(dispatchedOffset -> dispatchedOffset >= offset);
+        }
+
+        synchronized long takeCommitPosition() {
+            if (commitPosition <= committedPosition) {
+                return -1;
+            }
+            committedPosition = commitPosition;
+            return commitPosition;
+        }
+
+        /**
+         * The partition was revoked; work still running for it is replayed by the next owner
+         */
+        public boolean isRevoked() {
+            return revoked;
+        }
+
+        synchronized int pending() {
+            return dispatched.size();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.streamweaver.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the created_at range partitions of message_metadata ahead of the clock and
+ * drops the ones past retention.
+ *
+ * Partitions are whole UTC days or hours. Each run creates the current period and the
+ * next premake periods, clipped around ranges that already have a partition (the
+ * legacy partition from the migration, or partitions of another granularity), and
+ * drops every partition whose upper bound is older than the retention. Dropping a
+ * partition removes its rows and indexes at once instead of deleting row by row.
+ * Each partition is created with its own unique index on the record offset, which
+ * inserts use to skip redelivered records. Shared payloads in message_payload that no
+ * remaining row references are deleted in batches once they are past retention too, as
+ * are the message_offsets claims of rows older than every partition still kept.
+ * Statements run one by one in autocommit, so instances racing on the same partition
+ * or a partition that cannot be created only cost a logged failure; the next run retries.
+ */
+@Service
+@Slf4j
+public class PartitionManager {
+
+    private static final String TABLE = "message_metadata";
+
+    // Bounds of every partition but the default; MINVALUE leaves lower_bound null
+    private static final String PARTITIONS_SQL =
+        "SELECT c.relname, " +
+        "(regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \\(''([^'']+)''\\)'))[1]::timestamptz AS lower_bound, " +
+        "(regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz AS upper_bound " +
+        "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+        "WHERE i.inhparent = to_regclass('" + TABLE + "') " +
+        "AND pg_get_expr(c.relpartbound, c.oid) <> 'DEFAULT' " +
+        "ORDER BY lower_bound NULLS FIRST";
+
+    // Shared payloads unused since the cutoff and referenced by no row; created_at is
+    // their last use, refreshed at most hourly by MessageMetadataBatchRepository
+    private static final String PRUNE_PAYLOADS_SQL =
+        "DELETE FROM message_payload WHERE hash IN (" +
+        "SELECT p.hash FROM message_payload p WHERE p.created_at < ? " +
+        "AND NOT EXISTS (SELECT 1 FROM " + TABLE + " m WHERE m.payload_hash = p.hash) LIMIT ?)";
+    private static final Duration PAYLOAD_TOUCH_INTERVAL = Duration.ofHours(1);
+
+    // Offset claims carry their row's created_at
+    private static final String PRUNE_OFFSETS_SQL =
+        "DELETE FROM message_offsets WHERE ctid = ANY (ARRAY(" +
+        "SELECT ctid FROM message_offsets WHERE created_at < ? LIMIT ?))";
+    private static final int PRUNE_BATCH = 10_000;
+
+    private static final DateTimeFormatter DAILY = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HOURLY = DateTimeFormatter.ofPattern("yyyyMMddHH").withZone(ZoneOffset.UTC);
+
+    @Value("${streamweaver.storage.partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streamweaver.storage.partitions.granularity:daily}")
+    private String granularity;
+
+    @Value("${streamweaver.storage.partitions.premake:3}")
+    private int premake;
+
+    @Value("${streamweaver.storage.partitions.retention:30d}")
+    private Duration retention;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ChronoUnit unit;
+    private DateTimeFormatter suffix;
+
+    @PostConstruct
+    void init() {
+        boolean hourly = "hourly".equalsIgnoreCase(granularity);
+        unit = hourly ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        suffix = hourly ? HOURLY : DAILY;
+        // Before listener containers start, so the first rows have a partition
+        maintain();
+    }
+
+    @Scheduled(initialDelayString = "${streamweaver.storage.partitions.check-interval-ms:600000}",
+               fixedDelayString = "${streamweaver.storage.partitions.check-interval-ms:600000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        List<Range> partitions;
+        try {
+            partitions = partitions();
+        } catch (DataAccessException e) {
+            log.warn("Could not list {} partitions: {}", TABLE, e.getMessage());
+            return;
+        }
+        if (partitions == null) {
+            log.warn("{} is not partitioned, partition maintenance disabled", TABLE);
+            enabled = false;
+            return;
+        }
+
+        Instant now = Instant.now();
+        Instant period = now.truncatedTo(unit);
+        for (int i = 0; i <= premake; i++) {
+            Instant end = period.plus(1, unit);
+            create(period, end, partitions);
+            period = end;
+        }
+
+        if (retention.isZero() || retention.isNegative()) {
+            return;
+        }
+        Instant cutoff = now.minus(retention);
+        Instant keptFrom = Instant.MAX;
+        for (Range partition : partitions) {
+            boolean expired = partition.upper() != null && !partition.upper().isAfter(cutoff);
+            if (!expired || !drop(partition.name())) {
+                Instant lower = partition.lower() != null ? partition.lower() : Instant.MIN;
+                if (lower.isBefore(keptFrom)) {
+                    keptFrom = lower;
+                }
+            }
+        }
+        // Nothing older than a MINVALUE partition is ever dropped
+        if (!keptFrom.equals(Instant.MIN) && !keptFrom.equals(Instant.MAX)) {
+            pruneOffsets(keptFrom);
+        }
+        // Rows still stored are at most one period older than the cutoff
+        prunePayloads(cutoff.minus(1, unit).minus(PAYLOAD_TOUCH_INTERVAL));
+    }
+
+    // Create [from, end), shrunk to the part no existing partition covers
+    private void create(Instant from, Instant end, List<Range> partitions) {
+        String name = TABLE + "_p" + suffix.format(from);
+        for (Range existing : partitions) {
+            if (existing.overlaps(from, end)) {
+                if (existing.lower() == null || !existing.lower().isAfter(from)) {
+                    from = existing.upper();
+                } else {
+                    end = existing.lower();
+                }
+            }
+            if (!from.isBefore(end)) {
+                return;
+            }
+        }
+        try {
+            // One implicit transaction, so no row lands in the partition before its offset index exists
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE +
+                                 " FOR VALUES FROM ('" + from + "') TO ('" + end + "'); " +
+                                 "CREATE UNIQUE INDEX IF NOT EXISTS " + name + "_offset_key ON " + name +
+                                 " (topic, partition_number, offset_value)");
+            partitions.add(new Range(name, from, end));
+            log.info("🗓️ Created partition {} for [{}, {})", name, from, end);
+        } catch (DataAccessException e) {
+            // Typically rows for the range already sit in the default partition
+            log.warn("Could not create partition {} for [{}, {}): {}", name, from, end, e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private boolean drop(String name) {
+        try {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+            log.info("🗑️ Dropped partition {} past {} retention", name, retention);
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Could not drop partition {}: {}", name, e.getMostSpecificCause().getMessage());
+            return false;
+        }
+    }
+
+    // Claims older than the oldest kept partition belong to rows that were dropped
+    private void pruneOffsets(Instant storedFrom) {
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PRUNE_OFFSETS_SQL, Timestamp.from(storedFrom), PRUNE_BATCH);
+                total += deleted;
+            } while (deleted >= PRUNE_BATCH);
+        } catch (DataAccessException e) {
+            log.warn("Could not delete expired offset claims: {}", e.getMostSpecificCause().getMessage());
+        }
+        if (total > 0) {
+            log.info("🗑️ Deleted {} offset claims of rows stored before {}", total, storedFrom);
+        }
+    }
+
+    private void prunePayloads(Instant unusedSince) {
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PRUNE_PAYLOADS_SQL, Timestamp.from(unusedSince), PRUNE_BATCH);
+                total += deleted;
+            } while (deleted >= PRUNE_BATCH);
+        } catch (DataAccessException e) {
+            log.warn("Could not delete unreferenced payloads: {}", e.getMostSpecificCause().getMessage());
+        }
+        if (total > 0) {
+            log.info("🗑️ Deleted {} unreferenced payloads unused since {}", total, unusedSince);
+        }
+    }
+
+    // Existing range partitions in lower-bound order, null when the table is not partitioned
+    private List<Range> partitions() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('" + TABLE + "'))",
+            Boolean.class);
+        if (!Boolean.TRUE.equals(partitioned)) {
+            return null;
+        }
+        return new ArrayList<>(jdbcTemplate.query(PARTITIONS_SQL, (rs, row) -> new Range(
+            rs.getString("relname"),
+            toInstant(rs.getTimestamp("lower_bound")),
+            toInstant(rs.getTimestamp("upper_bound")))));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * One partition's bounds; a null lower bound is MINVALUE
+     */
+    private record Range(String name, Instant lower, Instant upper) {
+
+        boolean overlaps(Instant from, Instant end) {
+            return (lower == null || lower.isBefore(end)) && upper != null && upper.isAfter(from);
+        }
+    }
+}
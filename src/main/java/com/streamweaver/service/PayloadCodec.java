@@ -0,0 +1,107 @@
+package com.streamweaver.service;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Self-describing compressed payload format for the message_metadata payload column.
+ *
+ * Layout: one codec byte, the uncompressed length as a 4-byte big-endian int, then
+ * the codec's output. Payloads that do not shrink are kept as-is under NONE, so
+ * decoding never depends on the codec currently configured.
+ */
+public final class PayloadCodec {
+
+    public static final byte NONE = 0;
+    public static final byte LZ4 = 1;
+    public static final byte ZSTD = 2;
+
+    private static final int HEADER_LENGTH = 5;
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+    private static final LZ4Compressor LZ4_COMPRESSOR = LZ4_FACTORY.fastCompressor();
+    private static final LZ4FastDecompressor LZ4_DECOMPRESSOR = LZ4_FACTORY.fastDecompressor();
+
+    private PayloadCodec() {
+    }
+
+    public static byte codecOf(String name) {
+        return switch (name.toLowerCase()) {
+            case "lz4" -> LZ4;
+            case "zstd" -> ZSTD;
+            case "none" -> NONE;
+            default -> throw new IllegalArgumentException("Unknown payload codec: " + name);
+        };
+    }
+
+    public static byte[] compress(String payload, byte codec, int zstdLevel) {
+        return compress(payload.getBytes(StandardCharsets.UTF_8), codec, zstdLevel);
+    }
+
+    public static byte[] compress(byte[] payload, byte codec, int zstdLevel) {
+        byte[] out;
+        int length;
+        switch (codec) {
+            case LZ4 -> {
+                out = new byte[HEADER_LENGTH + LZ4_COMPRESSOR.maxCompressedLength(payload.length)];
+                length = LZ4_COMPRESSOR.compress(payload, 0, payload.length, out, HEADER_LENGTH, out.length - HEADER_LENGTH);
+            }
+            case ZSTD -> {
+                byte[] compressed = Zstd.compress(payload, zstdLevel);
+                out = new byte[HEADER_LENGTH + compressed.length];
+                System.arraycopy(compressed, 0, out, HEADER_LENGTH, compressed.length);
+                length = compressed.length;
+            }
+            default -> {
+                out = null;
+                length = Integer.MAX_VALUE;
+            }
+        }
+
+        if (length >= payload.length) {
+            codec = NONE;
+            out = new byte[HEADER_LENGTH + payload.length];
+            System.arraycopy(payload, 0, out, HEADER_LENGTH, payload.length);
+            length = payload.length;
+        }
+        writeHeader(out, codec, payload.length);
+        return out.length == HEADER_LENGTH + length ? out : Arrays.copyOf(out, HEADER_LENGTH + length);
+    }
+
+    public static byte[] decompress(byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+        int length = ((stored[1] & 0xFF) << 24) | ((stored[2] & 0xFF) << 16) | ((stored[3] & 0xFF) << 8) | (stored[4] & 0xFF);
+        byte[] payload = new byte[length];
+        switch (stored[0]) {
+            case NONE -> System.arraycopy(stored, HEADER_LENGTH, payload, 0, length);
+            case LZ4 -> LZ4_DECOMPRESSOR.decompress(stored, HEADER_LENGTH, payload, 0, length);
+            case ZSTD -> {
+                long written = Zstd.decompressByteArray(payload, 0, length, stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+                if (Zstd.isError(written)) {
+                    throw new IllegalStateException("Corrupt zstd payload: " + Zstd.getErrorName(written));
+                }
+            }
+            default -> throw new IllegalStateException("Unknown payload codec " + stored[0]);
+        }
+        return payload;
+    }
+
+    public static String decompressToString(byte[] stored) {
+        byte[] payload = decompress(stored);
+        return payload != null ? new String(payload, StandardCharsets.UTF_8) : null;
+    }
+
+    private static void writeHeader(byte[] out, byte codec, int length) {
+        out[0] = codec;
+        out[1] = (byte) (length >>> 24);
+        out[2] = (byte) (length >>> 16);
+        out[3] = (byte) (length >>> 8);
+        out[4] = (byte) length;
+    }
+}
@@ -0,0 +1,235 @@
+package com.streamweaver.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Recent-record diagnostics in place of per-message logging.
+ *
+ * Every consumed record gets a Trace holding its coordinates, a truncated copy of the
+ * payload and the time spent in each stage that ran on the consuming thread
+ * (IngestMetrics.record feeds the thread's current trace). Finished traces are
+ * published into a fixed-size ring with a single atomic increment and dumped by the
+ * diagnostics actuator endpoint. Nothing is formatted on the hot path: a trace is
+ * only logged when it failed, hit schema drift or falls on the 1-in-sample-rate slot.
+ */
+@Service
+@Slf4j
+public class PayloadDiagnostics {
+
+    private static final IngestMetrics.Stage[] STAGES = IngestMetrics.Stage.values();
+
+    @Value("${streamweaver.diagnostics.capacity:1024}")
+    private int capacity;
+
+    @Value("${streamweaver.diagnostics.sample-rate:1000}")
+    private int sampleRate;
+
+    @Value("${streamweaver.diagnostics.max-payload-chars:2048}")
+    private int maxPayloadChars;
+
+    private AtomicReferenceArray<Trace> ring;
+    private int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadLocal<Trace> current = new ThreadLocal<>();
+
+    @PostConstruct
+    void init() {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        ring = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Start tracing a record on this thread; stages recorded here are attributed to it until finish or detach
+     */
+    public Trace start(ConsumerRecord<String, ?> record) {
+        Trace trace = new Trace(record.topic(), record.partition(), record.offset(), record.key(),
+                                truncate(record.value()), System.nanoTime());
+        current.set(trace);
+        return trace;
+    }
+
+    public void stage(IngestMetrics.Stage stage, long nanos) {
+        Trace trace = current.get();
+        if (trace != null) {
+            trace.stageNanos[stage.ordinal()] += nanos;
+        }
+    }
+
+    public void drift() {
+        Trace trace = current.get();
+        if (trace != null) {
+            trace.drift = true;
+        }
+    }
+
+    /**
+     * Stop attributing this thread's stages to the trace, which is finished elsewhere
+     */
+    public void detach() {
+        current.set(null);
+    }
+
+    public void finish(Trace trace, String serviceName) {
+        trace.serviceName = serviceName;
+        publish(trace);
+
+        if (trace.drift) {
+            log.info("🔎 Schema drift: {} | payload: {}", describe(trace), trace.payloadText());
+        } else if (sampleRate > 0 && trace.sequence % sampleRate == 0 && log.isInfoEnabled()) {
+            log.info("🔎 Sampled: {}", describe(trace));
+        }
+    }
+
+    public void fail(Trace trace, String serviceName, String step, Throwable error) {
+        trace.serviceName = serviceName;
+        trace.failedStep = step;
+        trace.error = String.valueOf(error.getMessage());
+        publish(trace);
+        log.error("❌ Failed at {}: {} | payload: {}", step, describe(trace), trace.payloadText(), error);
+    }
+
+    /**
+     * Most recent traces, newest first
+     */
+    public List<Map<String, Object>> recent(int limit) {
+        long end = sequence.get();
+        long start = Math.max(0, end - Math.min(limit, ring.length()));
+        List<Map<String, Object>> traces = new ArrayList<>((int) (end - start));
+        for (long s = end - 1; s >= start; s--) {
+            Trace trace = ring.get((int) (s & mask));
+            if (trace != null && trace.sequence == s) {
+                traces.add(trace.toMap());
+            }
+        }
+        return traces;
+    }
+
+    public long recorded() {
+        return sequence.get();
+    }
+
+    public int capacity() {
+        return ring.length();
+    }
+
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    private void publish(Trace trace) {
+        if (current.get() == trace) {
+            current.set(null);
+        }
+        trace.totalNanos = System.nanoTime() - trace.startNanos;
+        trace.sequence = sequence.getAndIncrement();
+        ring.set((int) (trace.sequence & mask), trace);
+    }
+
+    // Copies at most maxPayloadChars, so the ring never pins large payloads
+    private Object truncate(Object payload) {
+        if (payload instanceof String text) {
+            return text.length() > maxPayloadChars ? text.substring(0, maxPayloadChars) : text;
+        }
+        if (payload instanceof byte[] bytes) {
+            return bytes.length > maxPayloadChars ? Arrays.copyOf(bytes, maxPayloadChars) : bytes;
+        }
+        return payload;
+    }
+
+    private static String describe(Trace trace) {
+        StringBuilder out = new StringBuilder(128)
+            .append(trace.topic).append('-').append(trace.partition).append('@').append(trace.offset)
+            .append(" service=").append(trace.serviceName)
+            .append(' ').append(millis(trace.totalNanos)).append("ms [");
+        boolean first = true;
+        for (IngestMetrics.Stage stage : STAGES) {
+            long nanos = trace.stageNanos[stage.ordinal()];
+            if (nanos > 0) {
+                out.append(first ? "" : " ").append(stage.getTag()).append('=').append(millis(nanos));
+                first = false;
+            }
+        }
+        return out.append(']').toString();
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    /**
+     * One consumed record; mutated only by the thread processing it until published
+     */
+    public static final class Trace {
+
+        final String topic;
+        final int partition;
+        final long offset;
+        final String key;
+        final Object payload;
+        final long startNanos;
+        final long receivedAt = System.currentTimeMillis();
+        final long[] stageNanos = new long[STAGES.length];
+        volatile long sequence = -1;
+        long totalNanos;
+        boolean drift;
+        String serviceName;
+        String failedStep;
+        String error;
+
+        Trace(String topic, int partition, long offset, String key, Object payload, long startNanos) {
+            this.topic = topic;
+            this.partition = partition;
+            this.offset = offset;
+            this.key = key;
+            this.payload = payload;
+            this.startNanos = startNanos;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> stages = new LinkedHashMap<>();
+            for (IngestMetrics.Stage stage : STAGES) {
+                long nanos = stageNanos[stage.ordinal()];
+                if (nanos > 0) {
+                    stages.put(stage.getTag(), millis(nanos));
+                }
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sequence", sequence);
+            map.put("received_at", Instant.ofEpochMilli(receivedAt).toString());
+            map.put("topic", topic);
+            map.put("partition", partition);
+            map.put("offset", offset);
+            map.put("key", key);
+            map.put("service", serviceName);
+            map.put("total_ms", millis(totalNanos));
+            map.put("stages_ms", stages);
+            map.put("schema_drift", drift);
+            if (failedStep != null) {
+                map.put("failed_step", failedStep);
+                map.put("error", error);
+            }
+            map.put("payload", payloadText());
+            return map;
+        }
+
+        // Bytes-mode payloads are only decoded when a trace is logged or dumped
+        String payloadText() {
+            return payload instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : (String) payload;
+        }
+    }
+}
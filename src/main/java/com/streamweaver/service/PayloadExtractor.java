@@ -0,0 +1,324 @@
+package com.streamweaver.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass payload extractor built on Jackson's streaming parser.
+ *
+ * Reads the payload once and returns the service name, log level and a structural
+ * hash (see StructureHash) together, without building a JsonNode tree or any
+ * intermediate map. Inference descends into nested objects and arrays up to
+ * max-depth levels and max-width fields or elements per container; anything past
+ * those limits is typed "object"/"array" or left out.
+ *
+ * The readable schema document is only built by describe(), when a new version
+ * has to be registered.
+ */
+@Service
+@Slf4j
+public class PayloadExtractor {
+
+    @Value("${streamweaver.schema.inference.max-depth:8}")
+    private int maxDepth = 8;
+
+    @Value("${streamweaver.schema.inference.max-width:512}")
+    private int maxWidth = 512;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    public PayloadSummary extract(String json) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return extract(parser);
+        } catch (Exception e) {
+            log.error("Error extracting payload: {}", e.getMessage());
+            return PayloadSummary.unparseable();
+        }
+    }
+
+    public PayloadSummary extract(byte[] json) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return extract(parser);
+        } catch (Exception e) {
+            log.error("Error extracting payload: {}", e.getMessage());
+            return PayloadSummary.unparseable();
+        }
+    }
+
+    /**
+     * Readable schema document for a payload, e.g. {"id":"integer","tags":["string"],"geo":{"lat":"double"}}.
+     * Its StructureHash.ofDocument equals the structureHash extract() returns for the same payload.
+     */
+    public String describe(String json) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return describe(parser);
+        } catch (Exception e) {
+            log.error("Error describing payload: {}", e.getMessage());
+            return PayloadSummary.EMPTY_SCHEMA;
+        }
+    }
+
+    public String describe(byte[] json) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return describe(parser);
+        } catch (Exception e) {
+            log.error("Error describing payload: {}", e.getMessage());
+            return PayloadSummary.EMPTY_SCHEMA;
+        }
+    }
+
+    private PayloadSummary extract(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return PayloadSummary.unparseable();
+        }
+
+        String service = null;
+        String serviceName = null;
+        String application = null;
+        String level = null;
+        String logLevel = null;
+        String severity = null;
+        FieldSum fields = new FieldSum();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            switch (fieldName) {
+                case "service" -> service = asText(parser, token);
+                case "service_name" -> serviceName = asText(parser, token);
+                case "application" -> application = asText(parser, token);
+                case "level" -> level = asText(parser, token);
+                case "log_level" -> logLevel = asText(parser, token);
+                case "severity" -> severity = asText(parser, token);
+                default -> { }
+            }
+
+            if (fields.size() < maxWidth) {
+                long name = StructureHash.name(fieldName);
+                fields.put(name, StructureHash.field(name, hashValue(parser, token, 1)));
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return new PayloadSummary(
+            firstNonNull(service, serviceName, application, PayloadSummary.DEFAULT_SERVICE_NAME),
+            firstNonNull(level, logLevel, severity, PayloadSummary.DEFAULT_LOG_LEVEL),
+            StructureHash.object(fields.sum()));
+    }
+
+    // Consumes the value starting at token, leaving the parser on its last token
+    private long hashValue(JsonParser parser, JsonToken token, int depth) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            if (depth >= maxDepth) {
+                parser.skipChildren();
+                return StructureHash.scalar(StructureHash.OBJECT);
+            }
+            FieldSum fields = new FieldSum();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if (fields.size() < maxWidth) {
+                    long name = StructureHash.name(fieldName);
+                    fields.put(name, StructureHash.field(name, hashValue(parser, valueToken, depth + 1)));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return StructureHash.object(fields.sum());
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            if (depth >= maxDepth) {
+                parser.skipChildren();
+                return StructureHash.scalar(StructureHash.ARRAY);
+            }
+            // Elements usually share one structure; the distinct set is only allocated when they don't
+            long first = 0;
+            long sum = 0;
+            long[] others = null;
+            int otherCount = 0;
+            int elements = 0;
+            JsonToken elementToken;
+            while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (elements++ >= maxWidth) {
+                    parser.skipChildren();
+                    continue;
+                }
+                long hash = hashValue(parser, elementToken, depth + 1);
+                if (elements == 1) {
+                    first = hash;
+                    sum = hash;
+                } else if (hash != first && (others == null || !StructureHash.contains(others, otherCount, hash))) {
+                    if (others == null) {
+                        others = new long[4];
+                    } else if (otherCount == others.length) {
+                        others = Arrays.copyOf(others, otherCount * 2);
+                    }
+                    others[otherCount++] = hash;
+                    sum += hash;
+                }
+            }
+            return StructureHash.array(sum);
+        }
+
+        return StructureHash.scalar(inferType(parser, token));
+    }
+
+    private String describe(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            return PayloadSummary.EMPTY_SCHEMA;
+        }
+        return objectMapper.writeValueAsString(describeValue(parser, token, 0));
+    }
+
+    // Mirrors hashValue, building the document instead of the hash
+    private Object describeValue(JsonParser parser, JsonToken token, int depth) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            if (depth >= maxDepth) {
+                parser.skipChildren();
+                return StructureHash.OBJECT;
+            }
+            Map<String, Object> fields = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if (fields.size() < maxWidth) {
+                    fields.put(fieldName, describeValue(parser, valueToken, depth + 1));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return fields;
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            if (depth >= maxDepth) {
+                parser.skipChildren();
+                return StructureHash.ARRAY;
+            }
+            List<Object> distinctElements = new ArrayList<>();
+            List<Long> seen = new ArrayList<>();
+            int elements = 0;
+            JsonToken elementToken;
+            while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (elements++ >= maxWidth) {
+                    parser.skipChildren();
+                    continue;
+                }
+                Object element = describeValue(parser, elementToken, depth + 1);
+                Long hash = StructureHash.ofValue(element);
+                if (!seen.contains(hash)) {
+                    seen.add(hash);
+                    distinctElements.add(element);
+                }
+            }
+            return distinctElements;
+        }
+
+        return inferType(parser, token);
+    }
+
+    private static String inferType(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            JsonParser.NumberType numberType = parser.getNumberType();
+            if (numberType == JsonParser.NumberType.INT) return StructureHash.INTEGER;
+            if (numberType == JsonParser.NumberType.LONG) return StructureHash.LONG;
+            return StructureHash.STRING;
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) return StructureHash.DOUBLE;
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) return StructureHash.BOOLEAN;
+        if (token == JsonToken.START_ARRAY) return StructureHash.ARRAY;
+        if (token == JsonToken.START_OBJECT) return StructureHash.OBJECT;
+        return StructureHash.STRING;
+    }
+
+    // Same text JsonNode.asText() gives: scalars as-is, "null" for null, empty for containers
+    private static String asText(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) return "null";
+        if (token.isStructStart()) return "";
+        return parser.getText();
+    }
+
+    private static String firstNonNull(String first, String second, String third, String fallback) {
+        if (first != null) return first;
+        if (second != null) return second;
+        if (third != null) return third;
+        return fallback;
+    }
+
+    /**
+     * An object's field contributions keyed by name hash. A repeated name replaces its
+     * earlier contribution and counts once towards max-width, as describeValue's map
+     * does, so both sides hash an object with duplicate keys the same way.
+     */
+    private static final class FieldSum {
+
+        private long[] names = new long[8];
+        private long[] contributions = new long[8];
+        // Open-addressed index into names by name hash, 0 for an empty slot, else index + 1
+        private int[] slots = new int[16];
+        private int size;
+        private long sum;
+
+        void put(long name, long contribution) {
+            int mask = slots.length - 1;
+            int slot = (int) (name ^ (name >>> 32)) & mask;
+            while (slots[slot] != 0) {
+                int index = slots[slot] - 1;
+                if (names[index] == name) {
+                    sum += contribution - contributions[index];
+                    contributions[index] = contribution;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                contributions = Arrays.copyOf(contributions, size * 2);
+            }
+            names[size] = name;
+            contributions[size++] = contribution;
+            slots[slot] = size;
+            sum += contribution;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        long sum() {
+            return sum;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int index = 0; index < size; index++) {
+                int slot = (int) (names[index] ^ (names[index] >>> 32)) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = index + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.streamweaver.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * How message payloads are laid out in message_metadata.
+ *
+ * text keeps the original raw_message and normalized_message TEXT columns.
+ * compressed stores the raw payload once as a PayloadCodec blob, either inline in
+ * message_metadata.payload or, with dedup enabled, in message_payload keyed by its
+ * SHA-256; the normalized envelope is rebuilt from it when read.
+ */
+@Service
+public class PayloadStorage {
+
+    @Value("#{'${streamweaver.storage.mode:text}' == 'compressed'}")
+    private boolean compressed;
+
+    @Value("${streamweaver.storage.codec:lz4}")
+    private String codecName;
+
+    @Value("${streamweaver.storage.zstd-level:3}")
+    private int zstdLevel;
+
+    @Value("${streamweaver.storage.dedup:false}")
+    private boolean dedup;
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public boolean isDeduplicated() {
+        return compressed && dedup;
+    }
+
+    /**
+     * Compressed form of a raw payload, with its content hash when deduplicating
+     */
+    public StoredPayload store(String rawMessage) {
+        if (rawMessage == null) {
+            return new StoredPayload(null, null);
+        }
+        byte[] raw = rawMessage.getBytes(StandardCharsets.UTF_8);
+        byte[] blob = PayloadCodec.compress(raw, PayloadCodec.codecOf(codecName), zstdLevel);
+        return new StoredPayload(blob, isDeduplicated() ? contentHash(raw) : null);
+    }
+
+    public static String contentHash(byte[] payload) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A compressed payload; hash is set when it belongs in message_payload rather than inline
+     */
+    public record StoredPayload(byte[] blob, String hash) {
+
+        public boolean isShared() {
+            return hash != null;
+        }
+    }
+}
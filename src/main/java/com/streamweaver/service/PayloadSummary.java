@@ -0,0 +1,26 @@
+package com.streamweaver.service;
+
+import lombok.Value;
+
+/**
+ * Everything the ingest path needs from one pass over a JSON payload
+ */
+@Value
+public class PayloadSummary {
+
+    public static final String DEFAULT_SERVICE_NAME = "unknown";
+    public static final String DEFAULT_LOG_LEVEL = "INFO";
+    public static final String EMPTY_SCHEMA = "{}";
+
+    String serviceName;
+    String logLevel;
+    /** StructureHash of the payload; the readable schema comes from PayloadExtractor.describe */
+    long structureHash;
+
+    /**
+     * Summary used when the payload is not valid JSON
+     */
+    public static PayloadSummary unparseable() {
+        return new PayloadSummary(DEFAULT_SERVICE_NAME, DEFAULT_LOG_LEVEL, StructureHash.EMPTY_OBJECT);
+    }
+}
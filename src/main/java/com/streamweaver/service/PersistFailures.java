@@ -0,0 +1,85 @@
+package com.streamweaver.service;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.List;
+
+/**
+ * Tells failures to store a row that can succeed on a later attempt from those that
+ * never will. Lost or refused connections, pool timeouts, lock, deadlock and
+ * serialization conflicts, query timeouts and spill log I/O errors are transient:
+ * the row is retried or spilled. Anything else, such as a constraint violation or a
+ * value too long for its column, fails the same way every time and is dead-lettered.
+ */
+public final class PersistFailures {
+
+    /** Destination of records whose row can never be stored: the source topic plus this suffix */
+    public static final String DEAD_LETTER_SUFFIX = ".DLT";
+
+    private static final List<Class<? extends Exception>> TRANSIENT_TYPES = List.of(
+        TransientDataAccessException.class,
+        RecoverableDataAccessException.class,
+        // Also covers CannotGetJdbcConnectionException
+        DataAccessResourceFailureException.class,
+        CannotCreateTransactionException.class,
+        SQLTransientException.class,
+        SQLRecoverableException.class,
+        UncheckedIOException.class);
+
+    // SQLSTATE classes: connection exception, transaction rollback (serialization
+    // failure, deadlock), insufficient resources, operator intervention (query
+    // canceled, admin shutdown); 55P03 is lock_not_available
+    private static final List<String> TRANSIENT_SQL_STATES = List.of("08", "40", "53", "57", "55P03");
+
+    private PersistFailures() {
+    }
+
+    /**
+     * True if the failure, or any of its causes, is worth retrying
+     */
+    public static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            for (Class<? extends Exception> type : TRANSIENT_TYPES) {
+                if (type.isInstance(cause)) {
+                    return true;
+                }
+            }
+            if (cause instanceof SQLException sql && sql.getSQLState() != null
+                && TRANSIENT_SQL_STATES.stream().anyMatch(sql.getSQLState()::startsWith)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The failure to rethrow for a row that could not be stored: transient failures as
+     * they are, for the error handler to retry, others wrapped in {@link Permanent}
+     */
+    public static RuntimeException classify(Exception failure) {
+        if (failure instanceof Permanent permanent) {
+            return permanent;
+        }
+        if (!isTransient(failure)) {
+            return new Permanent(failure);
+        }
+        return failure instanceof RuntimeException runtime ? runtime : new IllegalStateException(failure);
+    }
+
+    /**
+     * A row that fails to store the same way on every attempt; not retried
+     */
+    public static class Permanent extends RuntimeException {
+
+        public Permanent(Throwable cause) {
+            super("Row cannot be stored: " + cause.getMessage(), cause);
+        }
+    }
+}
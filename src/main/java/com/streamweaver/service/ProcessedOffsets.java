@@ -0,0 +1,137 @@
+package com.streamweaver.service;
+
+import com.streamweaver.repository.MessageMetadataRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Offsets already persisted (or spilled) per partition, so records redelivered after a
+ * rebalance or restart are skipped before they are parsed.
+ *
+ * Each partition keeps its high watermark and an exact bitmap of the window offsets
+ * below it. Offsets within a partition are dense, so the bitmap is smaller than a Bloom
+ * filter of the same window and has no false positives, meaning a new record is never
+ * skipped. On assignment the window is seeded from the offsets already stored at or
+ * after the consumer's position. Offsets that fall out of the window are treated as
+ * new; the insert-on-conflict path still keeps them from creating duplicate rows.
+ */
+@Service
+@Slf4j
+public class ProcessedOffsets {
+
+    @Value("${streamweaver.consumer.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streamweaver.consumer.dedup.window:1048576}")
+    private int window;
+
+    @Autowired
+    private MessageMetadataRepository messageMetadataRepository;
+
+    private final ConcurrentMap<TopicPartition, Window> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * True if the record's offset is known to be stored already
+     */
+    public boolean isProcessed(String topic, int partition, long offset) {
+        if (!enabled) {
+            return false;
+        }
+        Window processed = partitions.get(new TopicPartition(topic, partition));
+        return processed != null && processed.contains(offset);
+    }
+
+    public void markProcessed(String topic, Integer partition, Long offset) {
+        if (!enabled || partition == null || offset == null) {
+            return;
+        }
+        window(new TopicPartition(topic, partition)).mark(offset);
+    }
+
+    /**
+     * Load the offsets already stored at or after position, the range a new owner will be redelivered
+     */
+    public void seed(TopicPartition partition, long position) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Long> stored = messageMetadataRepository.findOffsetsFrom(
+                partition.topic(), partition.partition(), position, PageRequest.of(0, window));
+            Window processed = window(partition);
+            stored.forEach(processed::mark);
+            if (!stored.isEmpty()) {
+                log.info("🔁 {} has {} stored offsets from {}, redelivered records will be skipped",
+                         partition, stored.size(), position);
+            }
+        } catch (Exception e) {
+            log.warn("Could not load stored offsets for {}: {}", partition, e.getMessage());
+        }
+    }
+
+    public void forget(Collection<TopicPartition> revoked) {
+        revoked.forEach(partitions::remove);
+    }
+
+    private Window window(TopicPartition partition) {
+        Window processed = partitions.get(partition);
+        if (processed == null) {
+            processed = partitions.computeIfAbsent(partition, p -> new Window(window));
+        }
+        return processed;
+    }
+
+    /**
+     * Circular bitmap over (high - size, high]
+     */
+    private static final class Window {
+
+        private final long[] bits;
+        private final long size;
+        private long high = -1;
+
+        Window(int size) {
+            int words = Math.max(1, (size + 63) >>> 6);
+            this.bits = new long[words];
+            this.size = (long) words << 6;
+        }
+
+        synchronized boolean contains(long offset) {
+            if (offset > high || offset <= high - size) {
+                return false;
+            }
+            return (bits[word(offset)] & (1L << offset)) != 0;
+        }
+
+        synchronized void mark(long offset) {
+            if (offset > high) {
+                // Clear the slots being reused for offsets between the old and new watermark
+                if (offset - high >= size) {
+                    Arrays.fill(bits, 0L);
+                } else {
+                    for (long o = high + 1; o < offset; o++) {
+                        bits[word(o)] &= ~(1L << o);
+                    }
+                }
+                high = offset;
+            } else if (offset <= high - size) {
+                return;
+            }
+            bits[word(offset)] |= 1L << offset;
+        }
+
+        private int word(long offset) {
+            return (int) ((offset >>> 6) % bits.length);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.streamweaver.service;
+
+import com.streamweaver.entity.MessageMetadata;
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded hot tier of the messages this instance has stored most recently.
+ *
+ * Summaries live in a ring of parallel primitive arrays; topic, service and log level
+ * are interned to int codes, and each code has a posting list of ring sequence numbers,
+ * so "recent ERRORs for service X" walks the shorter posting list newest-first and
+ * checks the other codes in place. Everything this instance stored at or after
+ * coveredFrom is in the ring; older rows are only in Postgres.
+ *
+ * The ring only answers for the whole group while this instance owns every partition
+ * of the queried topics. Assignments are tracked from the rebalance listener; a topic
+ * is complete from the moment its last partition was assigned until any of its
+ * partitions is revoked. Otherwise other instances store rows for the same range and
+ * the result is marked incomplete, so the caller merges it with Postgres.
+ */
+@Service
+public class RecentMessageIndex {
+
+    private static final int MISSING = -1;
+
+    @Value("${streamweaver.recent-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streamweaver.recent-index.capacity:100000}")
+    private int capacity;
+
+    @Value("${streamweaver.recent-index.max-keys:10000}")
+    private int maxKeys;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids;
+    private long[] createdAt;
+    private long[] processedAt;
+    private long[] offsets;
+    private long[] processingTimes;
+    private int[] partitions;
+    private int[] topics;
+    private int[] services;
+    private int[] levels;
+    private String[] messageKeys;
+    private String[] schemaVersions;
+
+    private Dictionary topicCodes;
+    private Dictionary serviceCodes;
+    private Dictionary levelCodes;
+
+    private long head;
+    private long coveredFrom;
+
+    // Partitions owned by this instance's consumers, and per topic its partition count
+    // and the time since which every partition has been owned (absent while not all are)
+    private final Set<TopicPartition> owned = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> partitionCounts = new ConcurrentHashMap<>();
+    private final Map<String, Long> completeSince = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        ids = new long[capacity];
+        createdAt = new long[capacity];
+        processedAt = new long[capacity];
+        offsets = new long[capacity];
+        processingTimes = new long[capacity];
+        partitions = new int[capacity];
+        topics = new int[capacity];
+        services = new int[capacity];
+        levels = new int[capacity];
+        messageKeys = new String[capacity];
+        schemaVersions = new String[capacity];
+        topicCodes = new Dictionary(maxKeys);
+        serviceCodes = new Dictionary(maxKeys);
+        levelCodes = new Dictionary(maxKeys);
+        // Rows stored before startup are only in Postgres
+        coveredFrom = System.currentTimeMillis();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void add(MessageMetadata message) {
+        if (!enabled) {
+            return;
+        }
+        int topic = topicCodes.intern(message.getTopic());
+        int service = serviceCodes.intern(message.getServiceName());
+        int level = levelCodes.intern(message.getLogLevel());
+        long created = message.getCreatedAt() != null ? message.getCreatedAt().toEpochMilli() : System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            long sequence = head++;
+            int slot = slot(sequence);
+            if (sequence >= capacity) {
+                coveredFrom = Math.max(coveredFrom, createdAt[slot] + 1);
+            }
+            ids[slot] = message.getId() != null ? message.getId() : MISSING;
+            createdAt[slot] = created;
+            processedAt[slot] = message.getProcessedAt() != null ? message.getProcessedAt().toEpochMilli() : MISSING;
+            offsets[slot] = message.getOffset() != null ? message.getOffset() : MISSING;
+            processingTimes[slot] = message.getProcessingTimeMs() != null ? message.getProcessingTimeMs() : MISSING;
+            partitions[slot] = message.getPartition() != null ? message.getPartition() : MISSING;
+            topics[slot] = topic;
+            services[slot] = service;
+            levels[slot] = level;
+            messageKeys[slot] = message.getMessageKey();
+            schemaVersions[slot] = message.getSchemaVersion();
+
+            long tail = Math.max(0, head - capacity);
+            topicCodes.postings(topic, sequence, tail);
+            serviceCodes.postings(service, sequence, tail);
+            levelCodes.postings(level, sequence, tail);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record partitions assigned to one of this instance's consumers; partitionCount is the
+     * topic's current partition count as seen by that consumer
+     */
+    public synchronized void assigned(Collection<TopicPartition> partitions, String topic, int partitionCount) {
+        owned.addAll(partitions);
+        partitionCounts.put(topic, partitionCount);
+        long count = owned.stream().filter(partition -> partition.topic().equals(topic)).count();
+        if (count >= partitionCount) {
+            completeSince.putIfAbsent(topic, System.currentTimeMillis());
+        } else {
+            completeSince.remove(topic);
+        }
+    }
+
+    public synchronized void revoked(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            owned.remove(partition);
+            completeSince.remove(partition.topic());
+        }
+    }
+
+    /**
+     * Newest-first matches created at or after since (null for no bound), at most limit.
+     * Filters are exact; a null filter matches everything. The result is complete only
+     * when this instance owns every partition of the topic, or of every assigned topic
+     * when no topic filter is given.
+     */
+    public Result query(String topic, String serviceName, String logLevel, Instant since, int limit) {
+        if (!enabled) {
+            return Result.UNAVAILABLE;
+        }
+        lock.readLock().lock();
+        try {
+            long tail = Math.max(0, head - capacity);
+            Long ownedSince = ownedSince(topic);
+            boolean complete = ownedSince != null;
+            Instant covered = Instant.ofEpochMilli(complete ? Math.max(coveredFrom, ownedSince) : coveredFrom);
+            long sinceMillis = since != null ? since.toEpochMilli() : Long.MIN_VALUE;
+
+            int topicCode = topicCodes.lookup(topic);
+            int serviceCode = serviceCodes.lookup(serviceName);
+            int levelCode = levelCodes.lookup(logLevel);
+            if (topicCode == MISSING || serviceCode == MISSING || levelCode == MISSING) {
+                // Never seen: nothing recent, unless the name was not interned because the dictionary is full
+                boolean full = (topic != null && topicCodes.isFull()) || (serviceName != null && serviceCodes.isFull())
+                    || (logLevel != null && levelCodes.isFull());
+                return full ? Result.UNAVAILABLE : new Result(List.of(), covered, true, complete);
+            }
+
+            // Drive the scan from the shortest posting list among the filters
+            Postings driver = null;
+            driver = shorter(driver, topicCodes.postingsOf(topicCode));
+            driver = shorter(driver, serviceCodes.postingsOf(serviceCode));
+            driver = shorter(driver, levelCodes.postingsOf(levelCode));
+
+            List<MessageSummary> matches = new ArrayList<>(Math.min(limit, 256));
+            long position = driver != null ? driver.size() - 1 : head - 1;
+            while (matches.size() < limit) {
+                long sequence;
+                if (driver != null) {
+                    if (position < 0) {
+                        break;
+                    }
+                    sequence = driver.get(position--);
+                } else {
+                    sequence = position--;
+                }
+                if (sequence < tail) {
+                    break;
+                }
+                int slot = slot(sequence);
+                if (createdAt[slot] < sinceMillis) {
+                    break;
+                }
+                if ((topicCode == Dictionary.ANY || topics[slot] == topicCode)
+                    && (serviceCode == Dictionary.ANY || services[slot] == serviceCode)
+                    && (levelCode == Dictionary.ANY || levels[slot] == levelCode)) {
+                    matches.add(summary(slot));
+                }
+            }
+            return new Result(matches, covered, true, complete);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drop posting entries that have fallen out of the ring, including for keys no longer written
+     */
+    @Scheduled(fixedDelayString = "${streamweaver.recent-index.trim-interval-ms:60000}")
+    public void trim() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long tail = Math.max(0, head - capacity);
+            topicCodes.trim(tail);
+            serviceCodes.trim(tail);
+            levelCodes.trim(tail);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Since when this instance has owned every partition of the topic (or of every assigned
+    // topic for a null filter), null when it does not
+    private Long ownedSince(String topic) {
+        if (topic != null) {
+            return completeSince.get(topic);
+        }
+        if (partitionCounts.isEmpty()) {
+            return null;
+        }
+        long since = Long.MIN_VALUE;
+        for (String assignedTopic : partitionCounts.keySet()) {
+            Long topicSince = completeSince.get(assignedTopic);
+            if (topicSince == null) {
+                return null;
+            }
+            since = Math.max(since, topicSince);
+        }
+        return since;
+    }
+
+    private MessageSummary summary(int slot) {
+        return new MessageSummary(
+            ids[slot] != MISSING ? ids[slot] : null,
+            messageKeys[slot],
+            topicCodes.name(topics[slot]),
+            partitions[slot] != MISSING ? partitions[slot] : null,
+            offsets[slot] != MISSING ? offsets[slot] : null,
+            serviceCodes.name(services[slot]),
+            levelCodes.name(levels[slot]),
+            schemaVersions[slot],
+            processingTimes[slot] != MISSING ? processingTimes[slot] : null,
+            Instant.ofEpochMilli(createdAt[slot]),
+            processedAt[slot] != MISSING ? Instant.ofEpochMilli(processedAt[slot]) : null);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    // Sizes include entries past the tail until the next add or trim, close enough to pick a driver
+    private static Postings shorter(Postings current, Postings candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.size() < current.size() ? candidate : current;
+    }
+
+    /**
+     * Hot-tier answer; coveredFrom is the start of the range the ring holds completely.
+     * Unavailable when the index cannot answer and the database has to serve the whole range;
+     * incomplete when other instances also store rows for the range, so the database has
+     * to be merged in.
+     */
+    public record Result(List<MessageSummary> messages, Instant coveredFrom, boolean available, boolean complete) {
+
+        static final Result UNAVAILABLE = new Result(List.of(), null, false, false);
+    }
+
+    /**
+     * String to int code, with a posting list of ring sequences per code.
+     * Names past maxKeys are not interned and are stored as MISSING.
+     */
+    private static final class Dictionary {
+
+        static final int ANY = -2;
+
+        private final int maxKeys;
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Postings> postings = new ArrayList<>();
+
+        Dictionary(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+
+        int intern(String name) {
+            if (name == null) {
+                return MISSING;
+            }
+            Integer code = codes.get(name);
+            if (code != null) {
+                return code;
+            }
+            synchronized (this) {
+                code = codes.get(name);
+                if (code != null) {
+                    return code;
+                }
+                if (names.size() >= maxKeys) {
+                    return MISSING;
+                }
+                int next = names.size();
+                names.add(name);
+                postings.add(new Postings());
+                codes.put(name, next);
+                return next;
+            }
+        }
+
+        // ANY for a null filter, MISSING for a name without a code
+        int lookup(String name) {
+            if (name == null) {
+                return ANY;
+            }
+            Integer code = codes.get(name);
+            return code != null ? code : MISSING;
+        }
+
+        boolean isFull() {
+            return codes.size() >= maxKeys;
+        }
+
+        // Callers hold the index lock; names and postings only grow under this object's lock
+        synchronized String name(int code) {
+            return code >= 0 ? names.get(code) : null;
+        }
+
+        synchronized Postings postingsOf(int code) {
+            return code >= 0 ? postings.get(code) : null;
+        }
+
+        void postings(int code, long sequence, long tail) {
+            Postings list = postingsOf(code);
+            if (list != null) {
+                list.trim(tail);
+                list.add(sequence);
+            }
+        }
+
+        synchronized void trim(long tail) {
+            postings.forEach(list -> list.trim(tail));
+        }
+    }
+
+    /**
+     * Growable circular buffer of increasing ring sequences
+     */
+    private static final class Postings {
+
+        private long[] sequences = new long[16];
+        private int start;
+        private int size;
+
+        void add(long sequence) {
+            if (size == sequences.length) {
+                long[] grown = new long[sequences.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = sequences[(start + i) % sequences.length];
+                }
+                sequences = grown;
+                start = 0;
+            }
+            sequences[(start + size++) % sequences.length] = sequence;
+        }
+
+        void trim(long tail) {
+            while (size > 0 && sequences[start] < tail) {
+                start = (start + 1) % sequences.length;
+                size--;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(long index) {
+            return sequences[(int) ((start + index) % sequences.length)];
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.streamweaver.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Cached client for the Schema Registry REST API.
+ *
+ * Requests go through a single JDK HttpClient, which keeps connections alive and
+ * reuses them, with connect and read timeouts so a slow registry fails fast.
+ * The subject list is cached for subjects-ttl-ms and served stale if a refresh
+ * fails. A (subject, version) schema never changes, so it stays cached until
+ * evicted least-recently-used. Concurrent misses for the same key share one request.
+ */
+@Service
+@Slf4j
+public class RegistryRestClient {
+
+    private static final String SUBJECTS_KEY = "subjects";
+
+    @Value("${schema.registry.url}")
+    private String schemaRegistryUrl;
+
+    @Value("${streamweaver.schema.registry.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${streamweaver.schema.registry.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${streamweaver.schema.registry.subjects-ttl-ms:30000}")
+    private long subjectsTtlMs;
+
+    @Value("${streamweaver.schema.registry.max-cached-schemas:10000}")
+    private int maxCachedSchemas;
+
+    private RestTemplate restTemplate;
+    private Map<String, String> schemas;
+    private volatile CachedSubjects subjects;
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        restTemplate = new RestTemplate(requestFactory);
+
+        schemas = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxCachedSchemas;
+            }
+        });
+    }
+
+    /**
+     * All subjects, at most subjects-ttl-ms old unless the registry is unavailable
+     */
+    public List<String> getSubjects() {
+        CachedSubjects cached = subjects;
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt < subjectsTtlMs) {
+            return cached.subjects;
+        }
+        try {
+            return coalesce(SUBJECTS_KEY, () -> {
+                String[] fetched = restTemplate.getForObject(schemaRegistryUrl + "/subjects", String[].class);
+                List<String> result = fetched != null ? List.of(fetched) : List.of();
+                subjects = new CachedSubjects(result, System.currentTimeMillis());
+                return result;
+            });
+        } catch (RuntimeException e) {
+            if (cached == null) {
+                throw e;
+            }
+            log.warn("⚠️ Schema Registry unavailable, serving subjects cached {}ms ago: {}",
+                     System.currentTimeMillis() - cached.fetchedAt, e.getMessage());
+            return cached.subjects;
+        }
+    }
+
+    /**
+     * Registry response for one version of a subject
+     */
+    public String getSchema(String subject, int version) {
+        String key = subject + "/" + version;
+        String cached = schemas.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return coalesce(key, () -> {
+            String fetched = restTemplate.getForObject(schemaRegistryUrl + "/subjects/{subject}/versions/{version}",
+                String.class, subject, version);
+            if (fetched != null) {
+                schemas.put(key, fetched);
+            }
+            return fetched;
+        });
+    }
+
+    // The first caller for a key fetches, later callers wait for its result
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(String key, Supplier<T> fetch) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            T value = fetch.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private record CachedSubjects(List<String> subjects, long fetchedAt) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.streamweaver.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time-sliced log-linear histogram of non-negative values (HDR-style, ~12% relative error).
+ *
+ * Time is divided into fixed slots kept in a ring; recording touches only the current
+ * slot, and a window snapshot merges the slots that fall inside it. Memory is fixed
+ * at construction and recording never allocates.
+ */
+public class RollingHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_TRACKABLE = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final long slotMillis;
+    private final Slot[] slots;
+
+    public RollingHistogram(long slotMillis, int slotCount) {
+        this.slotMillis = slotMillis;
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public void record(long nowMillis, long value) {
+        long epoch = nowMillis / slotMillis;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        if (slot.epoch != epoch) {
+            slot.rollTo(epoch);
+        }
+        slot.counts.incrementAndGet(bucketIndex(value));
+        slot.total.incrementAndGet();
+        slot.max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Merge every slot that started within the last windowMillis
+     */
+    public Snapshot snapshot(long nowMillis, long windowMillis) {
+        long currentEpoch = nowMillis / slotMillis;
+        long oldestEpoch = currentEpoch - Math.max(1, windowMillis / slotMillis) + 1;
+
+        long[] merged = new long[BUCKETS];
+        long total = 0;
+        long max = 0;
+        for (Slot slot : slots) {
+            long epoch = slot.epoch;
+            if (epoch < oldestEpoch || epoch > currentEpoch) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                merged[i] += slot.counts.get(i);
+            }
+            total += slot.total.get();
+            max = Math.max(max, slot.max.get());
+        }
+        return new Snapshot(merged, total, max);
+    }
+
+    static int bucketIndex(long value) {
+        long v = Math.min(Math.max(value, 0), MAX_TRACKABLE);
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int mantissa = (int) ((v >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int mantissa = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + mantissa + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private static final class Slot {
+        volatile long epoch = Long.MIN_VALUE;
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        synchronized void rollTo(long newEpoch) {
+            if (epoch >= newEpoch) {
+                return;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            total.set(0);
+            max.set(0);
+            epoch = newEpoch;
+        }
+    }
+
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long total, long max) {
+            this.counts = counts;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return total;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, capped at the exact max
+         */
+        public long percentile(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
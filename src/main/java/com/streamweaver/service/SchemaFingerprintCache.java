@@ -0,0 +1,120 @@
+package com.streamweaver.service;
+
+import com.streamweaver.entity.SchemaVersion;
+import com.streamweaver.repository.SchemaVersionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-subject cache of the latest registered schema version, keyed by the
+ * StructureHash of its definition.
+ *
+ * Warmed from schema_versions at startup and updated on registration, so the
+ * common no-drift check is a single fingerprint comparison with no database access.
+ * Subjects are evicted least-recently-used once the configured size is reached.
+ */
+@Service
+@Slf4j
+public class SchemaFingerprintCache {
+
+    @Value("${streamweaver.schema.cache.max-subjects:10000}")
+    private int maxSubjects;
+
+    @Autowired
+    private SchemaVersionRepository schemaVersionRepository;
+
+    private Map<String, LatestSchema> latestBySubject;
+
+    @PostConstruct
+    void init() {
+        latestBySubject = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LatestSchema> eldest) {
+                return size() > maxSubjects;
+            }
+        });
+
+        try {
+            List<SchemaVersion> latestVersions = schemaVersionRepository.findLatestVersions();
+            latestVersions.forEach(this::update);
+            log.info("🗂️ Schema fingerprint cache warmed with {} subjects", latestBySubject.size());
+        } catch (Exception e) {
+            log.warn("Could not warm schema fingerprint cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Structural hash of a schema definition, comparable with PayloadSummary.getStructureHash()
+     */
+    public static long fingerprint(String schemaDefinition) {
+        return StructureHash.ofDocument(schemaDefinition);
+    }
+
+    /**
+     * Latest version for a subject, loading it from the database on a cache miss
+     */
+    public LatestSchema getLatest(String subject) {
+        LatestSchema cached = latestBySubject.get(subject);
+        if (cached != null) {
+            return cached;
+        }
+
+        LatestSchema loaded = schemaVersionRepository.findTopBySubjectOrderByVersionDesc(subject)
+            .map(LatestSchema::of)
+            .orElse(LatestSchema.ABSENT);
+        latestBySubject.put(subject, loaded);
+        return loaded;
+    }
+
+    /**
+     * Record a newly registered version if it is newer than the cached one
+     */
+    public void update(SchemaVersion schemaVersion) {
+        LatestSchema latest = LatestSchema.of(schemaVersion);
+        latestBySubject.merge(schemaVersion.getSubject(), latest,
+            (current, candidate) -> current.isNewerThan(candidate) ? current : candidate);
+    }
+
+    public void evict(String subject) {
+        latestBySubject.remove(subject);
+    }
+
+    public int size() {
+        return latestBySubject.size();
+    }
+
+    @lombok.Value
+    public static class LatestSchema {
+
+        static final LatestSchema ABSENT = new LatestSchema(null, null, 0L);
+
+        Integer version;
+        Integer schemaId;
+        long fingerprint;
+
+        static LatestSchema of(SchemaVersion schemaVersion) {
+            return new LatestSchema(schemaVersion.getVersion(), schemaVersion.getSchemaId(),
+                fingerprint(schemaVersion.getSchemaDefinition()));
+        }
+
+        public boolean exists() {
+            return version != null;
+        }
+
+        public boolean matches(long schemaFingerprint) {
+            return exists() && fingerprint == schemaFingerprint;
+        }
+
+        boolean isNewerThan(LatestSchema other) {
+            return exists() && (!other.exists() || version > other.version);
+        }
+    }
+}
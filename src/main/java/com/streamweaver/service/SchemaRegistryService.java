@@ -1,73 +1,72 @@
 package com.streamweaver.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.streamweaver.entity.SchemaVersion;
 import com.streamweaver.repository.SchemaVersionRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @Slf4j
 public class SchemaRegistryService {
     
-    @Value("${schema.registry.url}")
-    private String schemaRegistryUrl;
+    private static final int REGISTRATION_LOCK_STRIPES = 64;
+    private static final int MAX_REGISTRATION_ATTEMPTS = 3;
     
     @Autowired
     private SchemaVersionRepository schemaVersionRepository;
     
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private PayloadExtractor payloadExtractor;
+    
+    @Autowired
+    private SchemaFingerprintCache schemaFingerprintCache;
+    
+    @Autowired
+    private RegistryRestClient registryRestClient;
+    
+    private final ReentrantLock[] registrationLocks = new ReentrantLock[REGISTRATION_LOCK_STRIPES];
+    
+    {
+        for (int i = 0; i < registrationLocks.length; i++) {
+            registrationLocks[i] = new ReentrantLock();
+        }
+    }
     
     /**
      * Infer JSON schema from message
      */
     public String inferSchema(String jsonMessage) {
-        try {
-            JsonNode node = objectMapper.readTree(jsonMessage);
-            Map<String, String> schema = new LinkedHashMap<>();
-            
-            node.fields().forEachRemaining(entry -> {
-                String fieldName = entry.getKey();
-                JsonNode fieldValue = entry.getValue();
-                schema.put(fieldName, inferType(fieldValue));
-            });
-            
-            return objectMapper.writeValueAsString(schema);
-            
-        } catch (Exception e) {
-            log.error("Error inferring schema: {}", e.getMessage());
-            return "{}";
-        }
+        return payloadExtractor.describe(jsonMessage);
     }
     
     /**
      * Detect schema drift by comparing with previous version
      */
     public boolean detectSchemaDrift(String subject, String currentSchema) {
+        return detectSchemaDrift(subject, SchemaFingerprintCache.fingerprint(currentSchema));
+    }
+    
+    /**
+     * Detect schema drift from a payload's structural hash, without building its schema
+     */
+    public boolean detectSchemaDrift(String subject, long currentFingerprint) {
         try {
-            List<SchemaVersion> versions = schemaVersionRepository.findBySubject(subject);
+            SchemaFingerprintCache.LatestSchema latest = schemaFingerprintCache.getLatest(subject);
             
-            if (versions.isEmpty()) {
+            if (!latest.exists()) {
                 log.info("📝 New subject detected: {}", subject);
                 return false;
             }
             
-            SchemaVersion latest = versions.stream()
-                .max(Comparator.comparing(SchemaVersion::getVersion))
-                .orElse(null);
-            
-            if (latest != null && !latest.getSchemaDefinition().equals(currentSchema)) {
+            if (!latest.matches(currentFingerprint)) {
                 log.warn("⚠️ Schema drift detected for subject: {}", subject);
-                log.warn("Previous: {}", latest.getSchemaDefinition());
-                log.warn("Current: {}", currentSchema);
+                log.warn("Previous: version {} ({})", latest.getVersion(), Long.toHexString(latest.getFingerprint()));
+                log.warn("Current: {}", Long.toHexString(currentFingerprint));
                 return true;
             }
             
@@ -80,45 +79,66 @@ public class SchemaRegistryService {
     }
     
     /**
-     * Register new schema version
+     * Register new schema version.
+     * Registrations for the same subject are serialized by a lock stripe, and the
+     * (subject, version) unique constraint guards against other instances. If the
+     * latest version already has this structure it is returned instead of inserting.
      */
     public SchemaVersion registerSchema(String subject, String schemaDefinition, String registeredBy) {
+        ReentrantLock lock = registrationLocks[Math.floorMod(subject.hashCode(), REGISTRATION_LOCK_STRIPES)];
+        lock.lock();
         try {
-            List<SchemaVersion> existing = schemaVersionRepository.findBySubject(subject);
-            Integer nextVersion = existing.isEmpty() ? 1 : 
-                existing.stream()
-                    .map(SchemaVersion::getVersion)
-                    .max(Integer::compareTo)
-                    .orElse(0) + 1;
-            
-            SchemaVersion schemaVersion = SchemaVersion.builder()
-                .subject(subject)
-                .version(nextVersion)
-                .schemaDefinition(schemaDefinition)
-                .compatibilityMode("BACKWARD")
-                .isActive(true)
-                .registeredBy(registeredBy)
-                .build();
-            
-            SchemaVersion saved = schemaVersionRepository.save(schemaVersion);
-            log.info("✅ Registered schema version {} for subject: {}", nextVersion, subject);
-            
-            return saved;
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return insertOrGetLatest(subject, schemaDefinition, registeredBy);
+                } catch (DataIntegrityViolationException e) {
+                    if (attempt >= MAX_REGISTRATION_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.warn("Concurrent registration for subject {}, retrying", subject);
+                }
+            }
             
         } catch (Exception e) {
             log.error("Error registering schema: {}", e.getMessage(), e);
             return null;
+        } finally {
+            lock.unlock();
         }
     }
     
+    private SchemaVersion insertOrGetLatest(String subject, String schemaDefinition, String registeredBy) {
+        Optional<SchemaVersion> latest = schemaVersionRepository.findTopBySubjectOrderByVersionDesc(subject);
+        if (latest.isPresent() && SchemaFingerprintCache.fingerprint(latest.get().getSchemaDefinition())
+                == SchemaFingerprintCache.fingerprint(schemaDefinition)) {
+            schemaFingerprintCache.update(latest.get());
+            return latest.get();
+        }
+        
+        Integer nextVersion = latest.map(v -> v.getVersion() + 1).orElse(1);
+        
+        SchemaVersion schemaVersion = SchemaVersion.builder()
+            .subject(subject)
+            .version(nextVersion)
+            .schemaDefinition(schemaDefinition)
+            .compatibilityMode("BACKWARD")
+            .isActive(true)
+            .registeredBy(registeredBy)
+            .build();
+        
+        SchemaVersion saved = schemaVersionRepository.save(schemaVersion);
+        schemaFingerprintCache.update(saved);
+        log.info("✅ Registered schema version {} for subject: {}", nextVersion, subject);
+        
+        return saved;
+    }
+    
     /**
      * Get all schemas from Schema Registry
      */
     public List<String> getAllSubjects() {
         try {
-            String url = schemaRegistryUrl + "/subjects";
-            String[] subjects = restTemplate.getForObject(url, String[].class);
-            return subjects != null ? Arrays.asList(subjects) : Collections.emptyList();
+            return registryRestClient.getSubjects();
             
         } catch (Exception e) {
             log.error("Error fetching subjects from Schema Registry: {}", e.getMessage());
@@ -131,24 +151,11 @@ public class SchemaRegistryService {
      */
     public String getSchemaFromRegistry(String subject, int version) {
         try {
-            String url = String.format("%s/subjects/%s/versions/%d", 
-                schemaRegistryUrl, subject, version);
-            String response = restTemplate.getForObject(url, String.class);
-            return response;
+            return registryRestClient.getSchema(subject, version);
             
         } catch (Exception e) {
             log.error("Error fetching schema from registry: {}", e.getMessage());
             return null;
         }
     }
-    
-    private String inferType(JsonNode node) {
-        if (node.isInt()) return "integer";
-        if (node.isLong()) return "long";
-        if (node.isDouble() || node.isFloat()) return "double";
-        if (node.isBoolean()) return "boolean";
-        if (node.isArray()) return "array";
-        if (node.isObject()) return "object";
-        return "string";
-    }
 }
\ No newline at end of file
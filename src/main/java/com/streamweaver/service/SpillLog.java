@@ -0,0 +1,327 @@
+package com.streamweaver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.streamweaver.entity.MessageMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Local write-ahead log for metadata rows that could not be written to Postgres.
+ *
+ * Rows are appended as JSON to fixed-size memory-mapped segments, each entry framed
+ * as [length][CRC32C][bytes], and append() returns only after the written range has
+ * been forced to disk. The length is written last, so a torn entry reads as the end
+ * of the log. SpillReplayer reads from a checkpointed position and deletes
+ * segments once they have been fully replayed.
+ */
+@Service
+@Slf4j
+public class SpillLog {
+
+    private static final int ENTRY_HEADER = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    @Value("${streamweaver.spill.enabled:false}")
+    private boolean enabled;
+
+    @Value("${streamweaver.spill.dir:data/spill}")
+    private String directory;
+
+    @Value("${streamweaver.spill.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Path dir;
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private long writeSegment;
+    private int writePosition;
+    private long readSegment;
+    private int readPosition;
+    private final AtomicLong pendingEntries = new AtomicLong();
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        loadCheckpoint();
+
+        List<Long> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                .sorted()
+                .forEach(existing::add);
+        }
+
+        for (long sequence : existing) {
+            if (sequence < readSegment) {
+                Files.deleteIfExists(segmentPath(sequence));
+                continue;
+            }
+            MappedByteBuffer buffer = map(sequence);
+            segments.put(sequence, buffer);
+            int end = scan(buffer, sequence == readSegment ? readPosition : 0);
+            writeSegment = sequence;
+            writePosition = end;
+        }
+
+        if (segments.isEmpty()) {
+            writeSegment = readSegment;
+            writePosition = readPosition;
+            segments.put(writeSegment, map(writeSegment));
+        } else if (!segments.containsKey(readSegment)) {
+            readSegment = segments.firstKey();
+            readPosition = 0;
+        }
+        if (pendingEntries.get() > 0) {
+            log.warn("💽 Spill log has {} entries waiting to be replayed", pendingEntries.get());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True while spilled rows are waiting; new rows should then be spilled too
+     */
+    public boolean hasBacklog() {
+        return enabled && pendingEntries.get() > 0;
+    }
+
+    public long pendingEntries() {
+        return pendingEntries.get();
+    }
+
+    /**
+     * Append rows and force them to disk before returning
+     */
+    public void append(List<MessageMetadata> rows) throws IOException {
+        if (!enabled) {
+            throw new IOException("Spill log is disabled");
+        }
+        List<byte[]> entries = new ArrayList<>(rows.size());
+        for (MessageMetadata row : rows) {
+            byte[] bytes = objectMapper.writeValueAsBytes(row);
+            if (ENTRY_HEADER + bytes.length > segmentBytes - ENTRY_HEADER) {
+                throw new IOException("Row of " + bytes.length + " bytes does not fit in a spill segment");
+            }
+            entries.add(bytes);
+        }
+
+        synchronized (this) {
+            int flushFrom = writePosition;
+            for (byte[] bytes : entries) {
+                if (writePosition + ENTRY_HEADER + bytes.length > segmentBytes - ENTRY_HEADER) {
+                    segments.get(writeSegment).force(flushFrom, writePosition - flushFrom);
+                    roll();
+                    flushFrom = 0;
+                }
+                MappedByteBuffer buffer = segments.get(writeSegment);
+                CRC32C crc = new CRC32C();
+                crc.update(bytes);
+                buffer.put(writePosition + ENTRY_HEADER, bytes);
+                buffer.putInt(writePosition + 4, (int) crc.getValue());
+                buffer.putInt(writePosition, bytes.length);
+                writePosition += ENTRY_HEADER + bytes.length;
+            }
+            segments.get(writeSegment).force(flushFrom, writePosition - flushFrom);
+            pendingEntries.addAndGet(entries.size());
+        }
+    }
+
+    /**
+     * Up to max rows from the replay position; pass the batch to commit() once they are durable elsewhere
+     */
+    public Batch read(int max) {
+        List<byte[]> entries = new ArrayList<>();
+        long endSegment;
+        int endPosition;
+        int consumed = 0;
+
+        synchronized (this) {
+            long sequence = readSegment;
+            int position = readPosition;
+            while (consumed < max) {
+                MappedByteBuffer buffer = segments.get(sequence);
+                int length = position + ENTRY_HEADER <= segmentBytes ? buffer.getInt(position) : 0;
+                boolean valid = length > 0 && position + ENTRY_HEADER + length <= segmentBytes;
+                byte[] bytes = null;
+                if (valid) {
+                    bytes = new byte[length];
+                    buffer.get(position + ENTRY_HEADER, bytes);
+                    CRC32C crc = new CRC32C();
+                    crc.update(bytes);
+                    valid = (int) crc.getValue() == buffer.getInt(position + 4);
+                }
+
+                if (!valid) {
+                    if (sequence == writeSegment) {
+                        break;
+                    }
+                    if (length != 0) {
+                        log.error("❌ Corrupt spill entry in segment {} at {}, skipping rest of segment", sequence, position);
+                    }
+                    sequence = segments.higherKey(sequence);
+                    position = 0;
+                    continue;
+                }
+                entries.add(bytes);
+                position += ENTRY_HEADER + length;
+                consumed++;
+            }
+            endSegment = sequence;
+            endPosition = position;
+        }
+
+        List<MessageMetadata> rows = new ArrayList<>(entries.size());
+        for (byte[] bytes : entries) {
+            try {
+                rows.add(objectMapper.readValue(bytes, MessageMetadata.class));
+            } catch (IOException e) {
+                log.error("❌ Unreadable spill entry, skipping: {}", e.getMessage());
+            }
+        }
+        return new Batch(rows, consumed, endSegment, endPosition);
+    }
+
+    /**
+     * Advance the replay position past a batch and delete fully replayed segments
+     */
+    public synchronized void commit(Batch batch) throws IOException {
+        readSegment = batch.endSegment;
+        readPosition = batch.endPosition;
+        pendingEntries.addAndGet(-batch.entries);
+
+        for (Map.Entry<Long, MappedByteBuffer> segment : new ArrayList<>(segments.headMap(readSegment).entrySet())) {
+            segments.remove(segment.getKey());
+            Files.deleteIfExists(segmentPath(segment.getKey()));
+        }
+        writeCheckpoint();
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        segments.values().forEach(MappedByteBuffer::force);
+    }
+
+    private void roll() throws IOException {
+        writeSegment++;
+        writePosition = 0;
+        segments.put(writeSegment, map(writeSegment));
+    }
+
+    // Count valid entries from position and zero the header of a torn entry after the last one
+    private int scan(MappedByteBuffer buffer, int position) {
+        while (position + ENTRY_HEADER <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + ENTRY_HEADER + length > segmentBytes) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position + ENTRY_HEADER, bytes);
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            pendingEntries.incrementAndGet();
+            position += ENTRY_HEADER + length;
+        }
+        if (position + ENTRY_HEADER <= segmentBytes && buffer.getInt(position) != 0) {
+            log.warn("⚠️ Discarding torn spill entry at {}", position);
+            buffer.put(position, new byte[Math.min(ENTRY_HEADER, segmentBytes - position)]);
+            buffer.force(position, ENTRY_HEADER);
+        }
+        return position;
+    }
+
+    private MappedByteBuffer map(long sequence) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segmentPath(sequence).toFile(), "rw")) {
+            if (file.length() < segmentBytes) {
+                file.setLength(segmentBytes);
+            }
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private Path segmentPath(long sequence) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private void loadCheckpoint() throws IOException {
+        Path checkpoint = dir.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+            readSegment = bytes.getLong();
+            readPosition = bytes.getInt();
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path temp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        ByteBuffer bytes = ByteBuffer.allocate(12).putLong(readSegment).putInt(readPosition).flip();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(bytes);
+            channel.force(true);
+        }
+        Files.move(temp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Rows read from the log, with the position just past them
+     */
+    public static final class Batch {
+
+        private final List<MessageMetadata> rows;
+        private final int entries;
+        private final long endSegment;
+        private final int endPosition;
+
+        Batch(List<MessageMetadata> rows, int entries, long endSegment, int endPosition) {
+            this.rows = rows;
+            this.entries = entries;
+            this.endSegment = endSegment;
+            this.endPosition = endPosition;
+        }
+
+        public List<MessageMetadata> getRows() {
+            return rows;
+        }
+
+        public boolean isEmpty() {
+            return entries == 0;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.streamweaver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canonical 64-bit hash of a payload's structure: field names and value types,
+ * recursively through objects and arrays.
+ *
+ * Object fields and distinct array element structures are combined with a
+ * commutative sum of mixed hashes, so field order and array length do not matter.
+ * PayloadExtractor computes it token by token while parsing; ofDocument computes
+ * the same value from a schema document, which is how registered versions are compared.
+ */
+public final class StructureHash {
+
+    public static final String INTEGER = "integer";
+    public static final String LONG = "long";
+    public static final String DOUBLE = "double";
+    public static final String BOOLEAN = "boolean";
+    public static final String STRING = "string";
+    /** Type of an object nested past the depth limit */
+    public static final String OBJECT = "object";
+    /** Type of an array nested past the depth limit */
+    public static final String ARRAY = "array";
+
+    private static final long OBJECT_SEED = 0x9E3779B97F4A7C15L;
+    private static final long ARRAY_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long INTEGER_HASH = typeHash(INTEGER);
+    private static final long LONG_HASH = typeHash(LONG);
+    private static final long DOUBLE_HASH = typeHash(DOUBLE);
+    private static final long BOOLEAN_HASH = typeHash(BOOLEAN);
+    private static final long STRING_HASH = typeHash(STRING);
+    private static final long OBJECT_HASH = typeHash(OBJECT);
+    private static final long ARRAY_HASH = typeHash(ARRAY);
+
+    /** Hash of an object with no fields, also used for unparseable payloads */
+    public static final long EMPTY_OBJECT = object(0L);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private StructureHash() {
+    }
+
+    /**
+     * Hash of a scalar type name, or of a container cut off by the depth limit
+     */
+    public static long scalar(String type) {
+        return switch (type) {
+            case INTEGER -> INTEGER_HASH;
+            case LONG -> LONG_HASH;
+            case DOUBLE -> DOUBLE_HASH;
+            case BOOLEAN -> BOOLEAN_HASH;
+            case STRING -> STRING_HASH;
+            case OBJECT -> OBJECT_HASH;
+            case ARRAY -> ARRAY_HASH;
+            default -> typeHash(type);
+        };
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units of a field name
+     */
+    public static long name(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * One field's contribution; an object's hash is object() of the sum of these
+     */
+    public static long field(long nameHash, long valueHash) {
+        return mix(nameHash + Long.rotateLeft(valueHash, 31));
+    }
+
+    public static long object(long fieldSum) {
+        return mix(OBJECT_SEED ^ fieldSum);
+    }
+
+    /**
+     * Hash of an array from the sum of its distinct element hashes
+     */
+    public static long array(long distinctElementSum) {
+        return mix(ARRAY_SEED ^ distinctElementSum);
+    }
+
+    /**
+     * Hash of a schema document as produced by PayloadExtractor.describe
+     */
+    public static long ofDocument(String schemaDocument) {
+        try {
+            return ofValue(OBJECT_MAPPER.readValue(schemaDocument, Object.class));
+        } catch (Exception e) {
+            return typeHash(schemaDocument);
+        }
+    }
+
+    /**
+     * Hash of a parsed schema document node: a type name, a field map or a list of element structures
+     */
+    public static long ofValue(Object node) {
+        if (node instanceof Map<?, ?> fields) {
+            long sum = 0;
+            for (Map.Entry<?, ?> field : fields.entrySet()) {
+                sum += field(name(String.valueOf(field.getKey())), ofValue(field.getValue()));
+            }
+            return object(sum);
+        }
+        if (node instanceof List<?> elements) {
+            long sum = 0;
+            long[] seen = new long[elements.size()];
+            int distinct = 0;
+            for (Object element : elements) {
+                long hash = ofValue(element);
+                if (!contains(seen, distinct, hash)) {
+                    seen[distinct++] = hash;
+                    sum += hash;
+                }
+            }
+            return array(sum);
+        }
+        return scalar(String.valueOf(node));
+    }
+
+    static boolean contains(long[] values, int count, long value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long typeHash(String type) {
+        return mix(name(type) ^ 0x5851F42D4C957F2DL);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
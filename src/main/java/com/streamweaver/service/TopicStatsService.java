@@ -0,0 +1,207 @@
+package com.streamweaver.service;
+
+import com.streamweaver.entity.TopicServiceStats;
+import com.streamweaver.repository.TopicServiceStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-topic and per-service message statistics maintained by the consumer as
+ * messages are persisted, so the stats endpoint never scans message_metadata.
+ *
+ * Each instance counts the messages it persists and adds them to topic_service_stats
+ * as deltas; the table's baseline of rows stored before counting began comes from
+ * migration V4. Each checkpoint writes those deltas and then reads the whole table into
+ * an in-memory snapshot; requests are served from the snapshot plus the counts this
+ * instance has not checkpointed yet, so they never query the database. Other instances'
+ * messages show up at most one checkpoint interval late. Latency percentiles of
+ * processingTimeMs are kept over rolling 1m, 5m and 1h windows of this instance's
+ * messages in memory only.
+ */
+@Service
+@Slf4j
+public class TopicStatsService {
+
+    private static final long ONE_MINUTE_MS = 60_000L;
+    private static final Map<String, Long> WINDOWS = Map.of(
+        "1m", ONE_MINUTE_MS,
+        "5m", 5 * ONE_MINUTE_MS,
+        "1h", 60 * ONE_MINUTE_MS);
+
+    @Autowired
+    private TopicServiceStatsRepository topicServiceStatsRepository;
+
+    private final ConcurrentMap<String, TopicStats> topics = new ConcurrentHashMap<>();
+
+    // topic -> service -> table totals as of the last checkpoint, replaced whole
+    private volatile Map<String, Map<String, TableTotals>> tableTotals = Map.of();
+
+    /**
+     * Account for one persisted message
+     */
+    public void record(String topic, String serviceName, long processingTimeMs) {
+        TopicStats stats = topic(topic);
+        ServiceStats service = stats.service(serviceName != null ? serviceName : PayloadSummary.DEFAULT_SERVICE_NAME);
+        service.count.increment();
+        service.totalMs.add(processingTimeMs);
+
+        long now = System.currentTimeMillis();
+        stats.minuteWindow.record(now, processingTimeMs);
+        stats.hourWindow.record(now, processingTimeMs);
+    }
+
+    /**
+     * Stats for one topic, in the shape served by /api/stats/topic/{topic}
+     */
+    public Map<String, Object> getTopicStats(String topic) {
+        TopicStats stats = topics.get(topic);
+        Map<String, TableTotals> stored = tableTotals.getOrDefault(topic, Map.of());
+
+        long totalMessages = 0;
+        long totalMs = 0;
+        Map<String, Long> services = new TreeMap<>();
+        for (Map.Entry<String, TableTotals> service : stored.entrySet()) {
+            TableTotals totals = service.getValue();
+            totalMessages += totals.messageCount();
+            totalMs += totals.totalMs();
+            services.put(service.getKey(), totals.messageCount());
+        }
+        if (stats != null) {
+            // Counts of this instance that the snapshot does not include yet
+            for (Map.Entry<String, ServiceStats> service : stats.services.entrySet()) {
+                TableTotals totals = stored.get(service.getKey());
+                long count = service.getValue().count.sum() - (totals != null ? totals.localCount() : 0);
+                long ms = service.getValue().totalMs.sum() - (totals != null ? totals.localMs() : 0);
+                if (count > 0) {
+                    totalMessages += count;
+                    totalMs += ms;
+                    services.merge(service.getKey(), count, Long::sum);
+                }
+            }
+        }
+
+        Map<String, Object> windows = new LinkedHashMap<>();
+        if (stats != null) {
+            long now = System.currentTimeMillis();
+            windows.put("1m", describe(stats.minuteWindow.snapshot(now, WINDOWS.get("1m"))));
+            windows.put("5m", describe(stats.hourWindow.snapshot(now, WINDOWS.get("5m"))));
+            windows.put("1h", describe(stats.hourWindow.snapshot(now, WINDOWS.get("1h"))));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("topic", topic);
+        response.put("total_messages", totalMessages);
+        response.put("avg_processing_time_ms", totalMessages > 0 ? (double) totalMs / totalMessages : null);
+        response.put("services", services);
+        response.put("windows", windows);
+        return response;
+    }
+
+    /**
+     * Write counts accumulated since the previous checkpoint, then refresh the snapshot
+     */
+    @Scheduled(fixedDelayString = "${streamweaver.stats.checkpoint-interval-ms:30000}")
+    public synchronized void checkpoint() {
+        Instant now = Instant.now();
+        int written = 0;
+        for (Map.Entry<String, TopicStats> topic : topics.entrySet()) {
+            for (Map.Entry<String, ServiceStats> service : topic.getValue().services.entrySet()) {
+                ServiceStats stats = service.getValue();
+                long count = stats.count.sum();
+                long totalMs = stats.totalMs.sum();
+                long countDelta = count - stats.checkpointedCount;
+                long msDelta = totalMs - stats.checkpointedMs;
+                if (countDelta == 0) {
+                    continue;
+                }
+                try {
+                    topicServiceStatsRepository.addDelta(topic.getKey(), service.getKey(), countDelta, msDelta, now);
+                    stats.checkpointedCount = count;
+                    stats.checkpointedMs = totalMs;
+                    written++;
+                } catch (Exception e) {
+                    log.warn("Could not checkpoint stats for {}/{}: {}", topic.getKey(), service.getKey(), e.getMessage());
+                }
+            }
+        }
+        if (written > 0) {
+            log.debug("Checkpointed {} topic/service counters", written);
+        }
+        refreshTableTotals();
+    }
+
+    // Runs under the checkpoint lock, so checkpointed counts match what the table holds
+    private void refreshTableTotals() {
+        Map<String, Map<String, TableTotals>> snapshot = new HashMap<>();
+        try {
+            for (TopicServiceStats row : topicServiceStatsRepository.findAll()) {
+                TopicStats stats = topics.get(row.getTopic());
+                ServiceStats local = stats != null ? stats.services.get(row.getServiceName()) : null;
+                snapshot.computeIfAbsent(row.getTopic(), t -> new HashMap<>())
+                    .put(row.getServiceName(), new TableTotals(
+                        row.getMessageCount(), row.getTotalProcessingTimeMs(),
+                        local != null ? local.checkpointedCount : 0,
+                        local != null ? local.checkpointedMs : 0));
+            }
+        } catch (Exception e) {
+            log.warn("Could not refresh topic stats, serving the previous snapshot: {}", e.getMessage());
+            return;
+        }
+        tableTotals = snapshot;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        checkpoint();
+    }
+
+    private TopicStats topic(String topic) {
+        return topics.computeIfAbsent(topic, t -> new TopicStats());
+    }
+
+    private static Map<String, Object> describe(RollingHistogram.Snapshot snapshot) {
+        Map<String, Object> window = new LinkedHashMap<>();
+        window.put("count", snapshot.getCount());
+        window.put("p50_ms", snapshot.percentile(0.50));
+        window.put("p95_ms", snapshot.percentile(0.95));
+        window.put("p99_ms", snapshot.percentile(0.99));
+        window.put("max_ms", snapshot.getMax());
+        return window;
+    }
+
+    private static final class TopicStats {
+        // 10s slots for the 1m window, 1m slots for the 5m and 1h windows
+        final RollingHistogram minuteWindow = new RollingHistogram(10_000L, 7);
+        final RollingHistogram hourWindow = new RollingHistogram(ONE_MINUTE_MS, 61);
+        final ConcurrentMap<String, ServiceStats> services = new ConcurrentHashMap<>();
+
+        ServiceStats service(String serviceName) {
+            return services.computeIfAbsent(serviceName, s -> new ServiceStats());
+        }
+    }
+
+    private static final class ServiceStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalMs = new LongAdder();
+        long checkpointedCount;
+        long checkpointedMs;
+    }
+
+    /**
+     * One topic_service_stats row, and how much of it this instance had checkpointed when it was read
+     */
+    private record TableTotals(long messageCount, long totalMs, long localCount, long localMs) {
+    }
+}
@@ -0,0 +1,408 @@
+package com.streamweaver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.streamweaver.entity.MessageMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per-service counts, log-level breakdown, error rate and processing-time summary over
+ * tumbling and sliding event-time windows, emitted to the aggregates topic.
+ *
+ * Event time is the Kafka record timestamp. Time is cut into panes of gcd(tumbling,
+ * slide) and each pane is a set of fixed primitive arrays indexed by interned service
+ * and level codes, so recording a stored row is a few array increments. The watermark
+ * trails the highest event time by allowed-lateness; a window is emitted once the
+ * watermark passes its end by merging its panes, and rows for an already emitted pane
+ * are counted as late and dropped. Rows stamped more than allowed-lateness ahead of the
+ * wall clock are counted as future and dropped as well, so one skewed producer clock
+ * cannot push the watermark ahead and make every row after it late. When no rows arrive
+ * for idle-timeout, the watermark follows the wall clock so the last windows are still
+ * emitted.
+ */
+@Service
+@Slf4j
+public class WindowAggregator {
+
+    private static final long MAX_TRACKED_MS = (1L << 20) - 1;
+    private static final int BUCKETS = RollingHistogram.bucketIndex(MAX_TRACKED_MS) + 1;
+    private static final String OTHER = "other";
+
+    @Value("${streamweaver.aggregates.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streamweaver.aggregates.topic:metrics-aggregates}")
+    private String topic;
+
+    @Value("${streamweaver.aggregates.tumbling-ms:60000}")
+    private long tumblingMs;
+
+    @Value("${streamweaver.aggregates.sliding-ms:300000}")
+    private long slidingMs;
+
+    @Value("${streamweaver.aggregates.slide-ms:60000}")
+    private long slideMs;
+
+    @Value("${streamweaver.aggregates.allowed-lateness-ms:30000}")
+    private long allowedLatenessMs;
+
+    @Value("${streamweaver.aggregates.idle-timeout-ms:10000}")
+    private long idleTimeoutMs;
+
+    @Value("${streamweaver.aggregates.max-services:200}")
+    private int maxServices;
+
+    @Value("${streamweaver.aggregates.max-levels:16}")
+    private int maxLevels;
+
+    @Value("${streamweaver.aggregates.error-levels:ERROR,FATAL,CRITICAL}")
+    private Set<String> errorLevels;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IngestMetrics ingestMetrics;
+
+    private final Map<String, Integer> serviceCodes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> levelCodes = new ConcurrentHashMap<>();
+    private String[] serviceNames;
+    private String[] levelNames;
+
+    private long paneMs;
+    private long spanPanes;
+    private Pane[] panes;
+
+    // Guarded by this
+    private long maxEventTime = Long.MIN_VALUE;
+    private long lastArrival;
+    private long closedThrough = Long.MIN_VALUE;
+    private long lastDataPane = Long.MIN_VALUE;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        paneMs = BigInteger.valueOf(tumblingMs).gcd(BigInteger.valueOf(slidingMs > 0 ? slideMs : tumblingMs)).longValue();
+        if (slidingMs > 0 && slidingMs % slideMs != 0) {
+            throw new IllegalStateException("streamweaver.aggregates.sliding-ms must be a multiple of slide-ms");
+        }
+        spanPanes = Math.max(tumblingMs, slidingMs) / paneMs;
+        int paneCount = (int) (spanPanes + (allowedLatenessMs + paneMs - 1) / paneMs + 2);
+        panes = new Pane[paneCount];
+        for (int i = 0; i < paneCount; i++) {
+            panes[i] = new Pane(maxServices, maxLevels);
+        }
+
+        serviceNames = new String[maxServices];
+        levelNames = new String[maxLevels];
+        errorLevels = errorLevels.stream().map(l -> l.trim().toUpperCase(Locale.ROOT)).collect(Collectors.toSet());
+        // Last code of each dictionary collects names past the limit
+        serviceNames[maxServices - 1] = OTHER;
+        levelNames[maxLevels - 1] = OTHER;
+    }
+
+    /**
+     * Account for one stored row; windows closed by the advancing watermark are sent from this thread
+     */
+    public void record(MessageMetadata metadata) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long eventTime = metadata.getEventTime() != null && metadata.getEventTime() >= 0 ? metadata.getEventTime() : now;
+        int service = serviceCode(metadata.getServiceName());
+        int level = levelCode(metadata.getLogLevel());
+        long processingMs = metadata.getProcessingTimeMs() != null ? metadata.getProcessingTimeMs() : 0;
+
+        if (eventTime > now + allowedLatenessMs) {
+            ingestMetrics.futureForAggregates(metadata.getTopic());
+            return;
+        }
+
+        List<Map<String, Object>> closed = null;
+        boolean late;
+        synchronized (this) {
+            lastArrival = now;
+            if (eventTime > maxEventTime) {
+                maxEventTime = eventTime;
+                closed = advance(eventTime - allowedLatenessMs);
+            }
+            long paneIndex = Math.floorDiv(eventTime, paneMs);
+            late = paneIndex <= closedThrough;
+            if (!late) {
+                pane(paneIndex).add(service, level, maxLevels, processingMs);
+                lastDataPane = Math.max(lastDataPane, paneIndex);
+            }
+        }
+        if (late) {
+            ingestMetrics.lateForAggregates(metadata.getTopic());
+        }
+        send(closed);
+    }
+
+    /**
+     * Advance the watermark with the wall clock once the stream has been idle
+     */
+    @Scheduled(fixedDelayString = "${streamweaver.aggregates.flush-interval-ms:1000}")
+    public void flushIdle() {
+        if (!enabled) {
+            return;
+        }
+        List<Map<String, Object>> closed = null;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (closedThrough != Long.MIN_VALUE && now - lastArrival >= idleTimeoutMs) {
+                closed = advance(now - allowedLatenessMs);
+            }
+        }
+        send(closed);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        List<Map<String, Object>> closed;
+        synchronized (this) {
+            // Emit whatever is buffered, including windows still open to late rows
+            closed = closedThrough != Long.MIN_VALUE ? advance(maxEventTime + Math.max(tumblingMs, slidingMs)) : null;
+        }
+        send(closed);
+        kafkaTemplate.flush();
+    }
+
+    /**
+     * Close every pane ending at or before the watermark, returning the windows that ended
+     * with them, or null when none did. Caller holds the lock.
+     */
+    private List<Map<String, Object>> advance(long watermark) {
+        long through = Math.floorDiv(watermark, paneMs) - 1;
+        if (closedThrough == Long.MIN_VALUE) {
+            // First row: nothing was buffered before it
+            closedThrough = through;
+            return null;
+        }
+        if (through <= closedThrough) {
+            return null;
+        }
+        // Windows ending more than a span after the newest non-empty pane are empty; skip them
+        long last = lastDataPane == Long.MIN_VALUE ? closedThrough : Math.min(through, lastDataPane + spanPanes - 1);
+        List<Map<String, Object>> closed = null;
+        for (long pane = closedThrough + 1; pane <= last; pane++) {
+            long end = (pane + 1) * paneMs;
+            if (end % tumblingMs == 0) {
+                closed = collect(closed, "tumbling", end - tumblingMs, end);
+            }
+            if (slidingMs > 0 && end % slideMs == 0) {
+                closed = collect(closed, "sliding", end - slidingMs, end);
+            }
+        }
+        closedThrough = through;
+        return closed;
+    }
+
+    private List<Map<String, Object>> collect(List<Map<String, Object>> closed, String window, long start, long end) {
+        long[] counts = new long[maxServices * maxLevels];
+        long[] totalMs = new long[maxServices];
+        long[] minMs = new long[maxServices];
+        long[] maxMs = new long[maxServices];
+        long[] histogram = new long[maxServices * BUCKETS];
+        Arrays.fill(minMs, Long.MAX_VALUE);
+
+        boolean any = false;
+        for (long paneIndex = Math.floorDiv(start, paneMs); paneIndex < end / paneMs; paneIndex++) {
+            Pane pane = panes[slot(paneIndex)];
+            if (pane.index == paneIndex && pane.rows > 0) {
+                pane.mergeInto(counts, totalMs, minMs, maxMs, histogram);
+                any = true;
+            }
+        }
+        if (!any) {
+            return closed;
+        }
+
+        List<Map<String, Object>> results = closed != null ? closed : new ArrayList<>();
+        for (int service = 0; service < maxServices; service++) {
+            long count = 0;
+            long errors = 0;
+            Map<String, Long> levels = new LinkedHashMap<>();
+            for (int level = 0; level < maxLevels; level++) {
+                long levelCount = counts[service * maxLevels + level];
+                if (levelCount > 0) {
+                    count += levelCount;
+                    errors += errorLevels.contains(levelNames[level].toUpperCase(Locale.ROOT)) ? levelCount : 0;
+                    levels.put(levelNames[level], levelCount);
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            RollingHistogram.Snapshot latency = new RollingHistogram.Snapshot(
+                Arrays.copyOfRange(histogram, service * BUCKETS, (service + 1) * BUCKETS), count, maxMs[service]);
+
+            Map<String, Object> processing = new LinkedHashMap<>();
+            processing.put("avg", (double) totalMs[service] / count);
+            processing.put("min", minMs[service]);
+            processing.put("p50", latency.percentile(0.50));
+            processing.put("p95", latency.percentile(0.95));
+            processing.put("p99", latency.percentile(0.99));
+            processing.put("max", maxMs[service]);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("window", window);
+            result.put("start", Instant.ofEpochMilli(start).toString());
+            result.put("end", Instant.ofEpochMilli(end).toString());
+            result.put("service", serviceNames[service]);
+            result.put("count", count);
+            result.put("error_count", errors);
+            result.put("error_rate", (double) errors / count);
+            result.put("levels", levels);
+            result.put("processing_ms", processing);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private void send(List<Map<String, Object>> closed) {
+        if (closed == null) {
+            return;
+        }
+        for (Map<String, Object> result : closed) {
+            try {
+                kafkaTemplate.send(topic, (String) result.get("service"), objectMapper.writeValueAsString(result))
+                    .whenComplete((sent, ex) -> {
+                        if (ex != null) {
+                            log.warn("⚠️ Failed to emit {} window for {}: {}", result.get("window"), result.get("service"), ex.getMessage());
+                        }
+                    });
+            } catch (JsonProcessingException e) {
+                log.warn("⚠️ Could not serialize window result: {}", e.getMessage());
+            }
+        }
+        ingestMetrics.aggregatesEmitted(closed.size());
+    }
+
+    // Caller holds the lock; a pane slot is reused only once its previous pane has been emitted
+    private Pane pane(long paneIndex) {
+        Pane pane = panes[slot(paneIndex)];
+        if (pane.index != paneIndex) {
+            pane.reset(paneIndex);
+        }
+        return pane;
+    }
+
+    private int slot(long paneIndex) {
+        return (int) Math.floorMod(paneIndex, (long) panes.length);
+    }
+
+    private int serviceCode(String serviceName) {
+        return code(serviceCodes, serviceNames, serviceName != null ? serviceName : PayloadSummary.DEFAULT_SERVICE_NAME);
+    }
+
+    private int levelCode(String logLevel) {
+        return code(levelCodes, levelNames, logLevel != null ? logLevel : PayloadSummary.DEFAULT_LOG_LEVEL);
+    }
+
+    private static int code(Map<String, Integer> codes, String[] names, String name) {
+        Integer code = codes.get(name);
+        if (code != null) {
+            return code;
+        }
+        synchronized (codes) {
+            code = codes.get(name);
+            if (code != null) {
+                return code;
+            }
+            int overflow = names.length - 1;
+            if (codes.size() >= overflow) {
+                return overflow;
+            }
+            int next = codes.size();
+            names[next] = name;
+            codes.put(name, next);
+            return next;
+        }
+    }
+
+    /**
+     * Counters for one pane; arrays are allocated once and cleared when the slot is reused
+     */
+    private static final class Pane {
+
+        long index = Long.MIN_VALUE;
+        long rows;
+        final long[] counts;
+        final long[] totalMs;
+        final long[] minMs;
+        final long[] maxMs;
+        final long[] histogram;
+
+        Pane(int services, int levels) {
+            counts = new long[services * levels];
+            totalMs = new long[services];
+            minMs = new long[services];
+            maxMs = new long[services];
+            histogram = new long[services * BUCKETS];
+        }
+
+        void reset(long newIndex) {
+            if (rows > 0) {
+                Arrays.fill(counts, 0);
+                Arrays.fill(totalMs, 0);
+                Arrays.fill(maxMs, 0);
+                Arrays.fill(histogram, 0);
+            }
+            Arrays.fill(minMs, Long.MAX_VALUE);
+            rows = 0;
+            index = newIndex;
+        }
+
+        void add(int service, int level, int levels, long processingMs) {
+            rows++;
+            counts[service * levels + level]++;
+            totalMs[service] += processingMs;
+            minMs[service] = Math.min(minMs[service], processingMs);
+            maxMs[service] = Math.max(maxMs[service], processingMs);
+            histogram[service * BUCKETS + RollingHistogram.bucketIndex(Math.min(processingMs, MAX_TRACKED_MS))]++;
+        }
+
+        void mergeInto(long[] counts, long[] totalMs, long[] minMs, long[] maxMs, long[] histogram) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += this.counts[i];
+            }
+            for (int i = 0; i < totalMs.length; i++) {
+                totalMs[i] += this.totalMs[i];
+                minMs[i] = Math.min(minMs[i], this.minMs[i]);
+                maxMs[i] = Math.max(maxMs[i], this.maxMs[i]);
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += this.histogram[i];
+            }
+        }
+    }
+}
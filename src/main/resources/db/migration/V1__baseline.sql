@@ -0,0 +1,81 @@
+-- Tables as Hibernate ddl-auto=update created them before Flyway owned the schema.
+-- Everything is idempotent, so databases created that way are adopted unchanged, and
+-- databases from the first release get the columns and constraints added since.
+
+CREATE TABLE IF NOT EXISTS schema_versions (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    subject varchar(255) NOT NULL,
+    version integer NOT NULL,
+    schema_id integer,
+    schema_definition text NOT NULL,
+    compatibility_mode varchar(255),
+    is_active boolean,
+    registered_at timestamp(6) with time zone NOT NULL,
+    registered_by varchar(255),
+    CONSTRAINT uk_schema_subject_version UNIQUE (subject, version)
+);
+
+CREATE INDEX IF NOT EXISTS idx_subject ON schema_versions (subject);
+CREATE INDEX IF NOT EXISTS idx_version ON schema_versions (version);
+
+CREATE TABLE IF NOT EXISTS topic_service_stats (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    topic varchar(255) NOT NULL,
+    service_name varchar(255) NOT NULL,
+    message_count bigint NOT NULL,
+    total_processing_time_ms bigint NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT uk_topic_service_stats UNIQUE (topic, service_name)
+);
+
+CREATE TABLE IF NOT EXISTS message_payload (
+    hash varchar(64) PRIMARY KEY,
+    payload bytea NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS message_metadata (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    message_key varchar(255),
+    topic varchar(255) NOT NULL,
+    partition_number integer,
+    offset_value bigint,
+    raw_message text,
+    normalized_message text,
+    payload bytea,
+    payload_hash varchar(64),
+    service_name varchar(255),
+    log_level varchar(255),
+    schema_version varchar(255),
+    schema_id integer,
+    processing_time_ms bigint,
+    created_at timestamp(6) with time zone NOT NULL,
+    processed_at timestamp(6) with time zone,
+    created_by varchar(255),
+    CONSTRAINT uk_topic_partition_offset UNIQUE (topic, partition_number, offset_value)
+);
+
+-- Added after the first release; Hibernate only added them to databases it updated
+ALTER TABLE message_metadata ADD COLUMN IF NOT EXISTS payload bytea;
+ALTER TABLE message_metadata ADD COLUMN IF NOT EXISTS payload_hash varchar(64);
+
+-- Unique constraints added after the first release. Rows that would violate them, left
+-- by concurrent registrations and replayed records, are removed first; the oldest row wins.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_schema_subject_version') THEN
+        DELETE FROM schema_versions a
+         USING schema_versions b
+         WHERE a.subject = b.subject AND a.version = b.version AND a.id > b.id;
+        ALTER TABLE schema_versions ADD CONSTRAINT uk_schema_subject_version UNIQUE (subject, version);
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_topic_partition_offset') THEN
+        DELETE FROM message_metadata a
+         USING message_metadata b
+         WHERE a.topic = b.topic AND a.partition_number = b.partition_number
+           AND a.offset_value = b.offset_value AND a.id > b.id;
+        ALTER TABLE message_metadata
+            ADD CONSTRAINT uk_topic_partition_offset UNIQUE (topic, partition_number, offset_value);
+    END IF;
+END $$;
@@ -0,0 +1,83 @@
+-- Range-partition message_metadata by created_at (UTC). PartitionManager creates the
+-- message_metadata_p<yyyyMMdd[HH]> partitions ahead of time and drops expired ones;
+-- rows outside every partition land in message_metadata_default.
+--
+-- A unique constraint on the partitioned table would have to include created_at and
+-- could never catch a redelivered offset. Offsets are unique per partition instead:
+-- every partition has its own unique index on (topic, partition_number, offset_value),
+-- which INSERT ... ON CONFLICT DO NOTHING uses as its arbiter.
+
+-- Superseded by idx_service_created_at
+DROP INDEX IF EXISTS idx_service_name;
+
+-- An existing table with rows is kept as one partition covering everything up to the
+-- end of its newest day; it is dropped as a whole once that day passes retention.
+-- Its constraints, identity and index names would collide with the new parent's.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM message_metadata) THEN
+        DROP TABLE message_metadata;
+    ELSE
+        ALTER TABLE message_metadata RENAME TO message_metadata_legacy;
+        ALTER TABLE message_metadata_legacy DROP CONSTRAINT IF EXISTS message_metadata_pkey;
+        ALTER TABLE message_metadata_legacy
+            RENAME CONSTRAINT uk_topic_partition_offset TO message_metadata_legacy_offset_key;
+        ALTER TABLE message_metadata_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS;
+        ALTER TABLE message_metadata_legacy ALTER COLUMN id DROP DEFAULT;
+        DROP SEQUENCE IF EXISTS message_metadata_id_seq;
+        ALTER INDEX IF EXISTS idx_topic RENAME TO message_metadata_legacy_topic_idx;
+        ALTER INDEX IF EXISTS idx_created_at RENAME TO message_metadata_legacy_created_at_idx;
+        ALTER INDEX IF EXISTS idx_service_created_at RENAME TO message_metadata_legacy_service_created_at_idx;
+        ALTER INDEX IF EXISTS idx_level_created_at RENAME TO message_metadata_legacy_level_created_at_idx;
+    END IF;
+END $$;
+
+-- Identity columns are not supported on partitioned tables before PostgreSQL 17
+CREATE TABLE message_metadata (
+    id bigserial NOT NULL,
+    message_key varchar(255),
+    topic varchar(255) NOT NULL,
+    partition_number integer,
+    offset_value bigint,
+    raw_message text,
+    normalized_message text,
+    payload bytea,
+    payload_hash varchar(64),
+    service_name varchar(255),
+    log_level varchar(255),
+    schema_version varchar(255),
+    schema_id integer,
+    processing_time_ms bigint,
+    created_at timestamp(6) with time zone NOT NULL,
+    processed_at timestamp(6) with time zone,
+    created_by varchar(255),
+    CONSTRAINT message_metadata_pkey PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_topic ON message_metadata (topic);
+CREATE INDEX idx_created_at ON message_metadata (created_at);
+-- Filter then time range, for list pages and recent queries; also serve plain equality lookups
+CREATE INDEX idx_service_created_at ON message_metadata (service_name, created_at);
+CREATE INDEX idx_level_created_at ON message_metadata (log_level, created_at);
+
+-- Matching legacy indexes are attached as they are and the primary key is built on
+-- attach; the legacy offset constraint stays as the partition's own
+DO $$
+DECLARE
+    cutover timestamptz;
+BEGIN
+    IF to_regclass('message_metadata_legacy') IS NULL THEN
+        RETURN;
+    END IF;
+    SELECT (greatest(date_trunc('day', now() AT TIME ZONE 'UTC'),
+                     date_trunc('day', max(created_at) AT TIME ZONE 'UTC')) + interval '1 day') AT TIME ZONE 'UTC'
+      INTO cutover
+      FROM message_metadata_legacy;
+    EXECUTE format('ALTER TABLE message_metadata ATTACH PARTITION message_metadata_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                   cutover);
+    PERFORM setval(pg_get_serial_sequence('message_metadata', 'id'), (SELECT max(id) FROM message_metadata_legacy));
+END $$;
+
+CREATE TABLE message_metadata_default PARTITION OF message_metadata DEFAULT;
+CREATE UNIQUE INDEX message_metadata_default_offset_key
+    ON message_metadata_default (topic, partition_number, offset_value);
@@ -0,0 +1,5 @@
+-- Shared payloads no row references any more are deleted by PartitionManager once
+-- they have not been used for longer than the retention. created_at is refreshed when
+-- a payload is stored again, so it is the payload's last use.
+CREATE INDEX IF NOT EXISTS idx_payload_created_at ON message_payload (created_at);
+CREATE INDEX IF NOT EXISTS idx_payload_hash ON message_metadata (payload_hash);
@@ -0,0 +1,9 @@
+-- All-time topic/service counters start from the rows already stored. Flyway applies this
+-- once, under its own lock, before any instance consumes, so instances starting together
+-- cannot each add a baseline. Databases whose counters were already seeded keep them.
+INSERT INTO topic_service_stats (topic, service_name, message_count, total_processing_time_ms, updated_at)
+SELECT topic, COALESCE(service_name, 'unknown'), COUNT(*), COALESCE(SUM(processing_time_ms), 0), now()
+FROM message_metadata
+WHERE NOT EXISTS (SELECT 1 FROM topic_service_stats)
+GROUP BY topic, COALESCE(service_name, 'unknown')
+ON CONFLICT (topic, service_name) DO NOTHING;
@@ -0,0 +1,30 @@
+-- The per-partition offset indexes from V2 only catch a redelivered record when it
+-- lands in the same created_at partition as the original; one redelivered across a
+-- day or hour boundary was stored twice. message_offsets is not partitioned, so its
+-- primary key is unique across every partition: MessageMetadataBatchRepository claims
+-- a record's offset here in the same statement that inserts the row, and only rows
+-- whose claim succeeded are inserted. created_at is the row's, so PartitionManager can
+-- delete the claims of partitions it has dropped.
+CREATE TABLE message_offsets (
+    topic varchar(255) NOT NULL,
+    partition_number integer NOT NULL,
+    offset_value bigint NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT message_offsets_pkey PRIMARY KEY (topic, partition_number, offset_value)
+);
+
+CREATE INDEX idx_message_offsets_created_at ON message_offsets (created_at);
+
+-- Copies that already sit in two partitions: the earliest stored row is kept
+DELETE FROM message_metadata m
+ USING message_metadata earlier
+ WHERE m.topic = earlier.topic
+   AND m.partition_number = earlier.partition_number
+   AND m.offset_value = earlier.offset_value
+   AND (m.created_at, m.id) > (earlier.created_at, earlier.id);
+
+INSERT INTO message_offsets (topic, partition_number, offset_value, created_at)
+SELECT topic, partition_number, offset_value, min(created_at)
+  FROM message_metadata
+ WHERE partition_number IS NOT NULL AND offset_value IS NOT NULL
+ GROUP BY topic, partition_number, offset_value;
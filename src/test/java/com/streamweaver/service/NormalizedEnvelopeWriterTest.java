@@ -0,0 +1,74 @@
+package com.streamweaver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NormalizedEnvelopeWriterTest {
+
+    private static final List<Instant> INSTANTS = List.of(
+        Instant.EPOCH,
+        Instant.parse("2024-02-29T23:59:59Z"),
+        Instant.parse("2024-02-29T23:59:59.120Z"),
+        Instant.parse("2024-03-01T00:00:00.000450Z"),
+        Instant.parse("2024-03-01T00:00:00.000000001Z"),
+        Instant.parse("1969-12-31T23:59:59.999999999Z"),
+        Instant.parse("0000-01-01T00:00:00Z"),
+        Instant.parse("9999-12-31T23:59:59.5Z"),
+        Instant.parse("+10000-01-01T00:00:00Z"),
+        Instant.parse("-0001-06-15T12:00:00.25Z"));
+
+    private final NormalizedEnvelopeWriter writer = new NormalizedEnvelopeWriter();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "{}",
+        "{\"service\":\"api\",\"message\":\"café ☃ 😀\",\"n\":[1,2.5,null]}",
+        "\"just a string\"",
+        "  {\"spaced\" : true }\n"
+    })
+    void wrapIsByteIdenticalToTheStringEnvelope(String payload) throws Exception {
+        for (Instant normalizedAt : INSTANTS) {
+            byte[] wrapped = writer.wrap(payload.getBytes(StandardCharsets.UTF_8), normalizedAt);
+
+            assertThat(wrapped)
+                .isEqualTo(NormalizedEnvelopeWriter.toJson(payload, normalizedAt).getBytes(StandardCharsets.UTF_8));
+
+            JsonNode envelope = objectMapper.readTree(wrapped);
+            assertThat(envelope.get("data")).isEqualTo(objectMapper.readTree(payload));
+            assertThat(envelope.get("normalized_at").asText()).isEqualTo(normalizedAt.toString());
+            assertThat(envelope.get("version").asText()).isEqualTo("1.0");
+        }
+    }
+
+    @Test
+    void nullPayloadIsWrappedAsJsonNull() {
+        Instant normalizedAt = Instant.parse("2024-05-01T10:15:30.001Z");
+
+        assertThat(new String(writer.wrap(null, normalizedAt), StandardCharsets.UTF_8))
+            .isEqualTo(NormalizedEnvelopeWriter.toJson("null", normalizedAt));
+    }
+
+    @Test
+    void cachedSecondIsRefreshedWhenTheSecondChanges() {
+        byte[] payload = "{}".getBytes(StandardCharsets.UTF_8);
+        Instant first = Instant.parse("2024-05-01T10:15:30.999Z");
+        Instant next = first.plusMillis(2);
+
+        writer.wrap(payload, first);
+
+        assertThat(new String(writer.wrap(payload, next), StandardCharsets.UTF_8))
+            .isEqualTo(NormalizedEnvelopeWriter.toJson("{}", next));
+        assertThat(new String(writer.wrap(payload, first), StandardCharsets.UTF_8))
+            .isEqualTo(NormalizedEnvelopeWriter.toJson("{}", first));
+    }
+}
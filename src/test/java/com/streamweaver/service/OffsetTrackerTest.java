@@ -0,0 +1,113 @@
+package com.streamweaver.service;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffsetTrackerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("raw-data", 0);
+    private static final TopicPartition OTHER = new TopicPartition("raw-data", 1);
+
+    private final OffsetTracker tracker = new OffsetTracker();
+
+    @Test
+    void commitPositionAdvancesOverTheCompletedPrefixOnly() {
+        OffsetTracker.PartitionOffsets offsets = dispatch(PARTITION, 10, 11, 12);
+
+        offsets.completed(12);
+        assertThat(committable()).isEmpty();
+
+        offsets.completed(10);
+        assertThat(committable()).containsExactly(Map.entry(PARTITION, new OffsetAndMetadata(11)));
+
+        offsets.completed(11);
+        assertThat(committable()).containsExactly(Map.entry(PARTITION, new OffsetAndMetadata(13)));
+        assertThat(tracker.pending(PARTITION)).isZero();
+    }
+
+    @Test
+    void positionIsOnlyReturnedOnceUntilItAdvances() {
+        dispatch(PARTITION, 0).completed(0);
+
+        assertThat(committable()).containsEntry(PARTITION, new OffsetAndMetadata(1));
+        assertThat(committable()).isEmpty();
+    }
+
+    @Test
+    void partitionsAreTrackedIndependently() {
+        OffsetTracker.PartitionOffsets first = dispatch(PARTITION, 5, 6);
+        OffsetTracker.PartitionOffsets second = dispatch(OTHER, 100);
+
+        second.completed(100);
+        first.completed(6);
+
+        assertThat(committable()).containsExactly(Map.entry(OTHER, new OffsetAndMetadata(101)));
+        assertThat(tracker.committable(List.of(PARTITION))).isEmpty();
+        assertThat(tracker.pending(PARTITION)).isEqualTo(2);
+    }
+
+    @Test
+    void completionAfterRevokeDoesNotMoveTheNextAssignment() {
+        OffsetTracker.PartitionOffsets revoked = dispatch(PARTITION, 0, 1);
+        tracker.revoke(List.of(PARTITION));
+        assertThat(revoked.isRevoked()).isTrue();
+
+        OffsetTracker.PartitionOffsets assigned = dispatch(PARTITION, 0);
+        revoked.completed(0);
+        revoked.completed(1);
+
+        assertThat(assigned.isRevoked()).isFalse();
+        assertThat(committable()).isEmpty();
+        assertThat(tracker.pending(PARTITION)).isEqualTo(1);
+    }
+
+    @Test
+    void rewoundOffsetsAreDispatchedAgainAndKeepEarlierCompletions() {
+        OffsetTracker.PartitionOffsets offsets = dispatch(PARTITION, 5, 6, 7);
+        offsets.completed(5);
+        offsets.completed(7);
+
+        offsets.rewind(6);
+        assertThat(tracker.pending(PARTITION)).isZero();
+        assertThat(committable()).containsExactly(Map.entry(PARTITION, new OffsetAndMetadata(6)));
+
+        // The redelivery of 6 and 7; 7 was stored before the seek and is not completed again
+        dispatch(PARTITION, 6, 7);
+        offsets.completed(6);
+
+        assertThat(committable()).containsExactly(Map.entry(PARTITION, new OffsetAndMetadata(8)));
+    }
+
+    @Test
+    void completionBehindTheCommitPositionIsIgnored() {
+        OffsetTracker.PartitionOffsets offsets = dispatch(PARTITION, 3, 4);
+        offsets.completed(3);
+        offsets.completed(4);
+        committable();
+
+        dispatch(PARTITION, 5);
+        offsets.completed(3);
+        assertThat(committable()).isEmpty();
+
+        offsets.completed(5);
+        assertThat(committable()).containsExactly(Map.entry(PARTITION, new OffsetAndMetadata(6)));
+    }
+
+    private OffsetTracker.PartitionOffsets dispatch(TopicPartition partition, long... offsets) {
+        OffsetTracker.PartitionOffsets state = null;
+        for (long offset : offsets) {
+            state = tracker.dispatched(partition, offset);
+        }
+        return state;
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> committable() {
+        return tracker.committable(List.of(PARTITION, OTHER));
+    }
+}
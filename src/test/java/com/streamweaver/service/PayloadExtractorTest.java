@@ -0,0 +1,95 @@
+package com.streamweaver.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadExtractorTest {
+
+    private PayloadExtractor extractor;
+
+    @BeforeEach
+    void setUp() {
+        extractor = new PayloadExtractor();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "{}",
+        "{\"service\":\"api\",\"level\":\"WARN\",\"id\":1,\"big\":12345678901,\"ratio\":0.5,\"ok\":true}",
+        "{\"user\":{\"id\":7,\"geo\":{\"lat\":1.5,\"lon\":-2.25},\"tags\":[\"a\",\"b\"]}}",
+        "{\"items\":[{\"id\":1},{\"id\":2,\"name\":\"x\"},{\"id\":3},1,\"s\",[true,false]]}",
+        "{\"empty\":[],\"nested\":[[1,2],[3],[\"x\"]],\"nothing\":null}",
+        "{\"a\":1,\"a\":\"one\",\"b\":{\"c\":true,\"c\":false,\"c\":1.0}}",
+        "{\"level\":{\"inner\":1},\"service\":[1,2],\"severity\":null}"
+    })
+    void structureHashMatchesHashOfDescribedDocument(String json) {
+        long streamed = extractor.extract(json).getStructureHash();
+
+        assertThat(StructureHash.ofDocument(extractor.describe(json))).isEqualTo(streamed);
+        assertThat(extractor.extract(json.getBytes(StandardCharsets.UTF_8)).getStructureHash()).isEqualTo(streamed);
+    }
+
+    @Test
+    void duplicateKeyKeepsLastValue() {
+        String duplicated = "{\"a\":1,\"b\":true,\"a\":\"one\"}";
+
+        assertThat(extractor.describe(duplicated)).isEqualTo("{\"a\":\"string\",\"b\":\"boolean\"}");
+        assertThat(extractor.extract(duplicated).getStructureHash())
+            .isEqualTo(extractor.extract("{\"b\":false,\"a\":\"two\"}").getStructureHash());
+    }
+
+    @Test
+    void fieldOrderAndArrayLengthDoNotChangeTheHash() {
+        long hash = extractor.extract("{\"a\":1,\"b\":[1,2,3],\"c\":{\"x\":\"s\",\"y\":2.0}}").getStructureHash();
+
+        assertThat(extractor.extract("{\"c\":{\"y\":9.5,\"x\":\"t\"},\"b\":[4],\"a\":2}").getStructureHash())
+            .isEqualTo(hash);
+    }
+
+    @Test
+    void typeOrNestingChangesTheHash() {
+        long hash = extractor.extract("{\"a\":{\"b\":1}}").getStructureHash();
+
+        assertThat(extractor.extract("{\"a\":{\"b\":\"1\"}}").getStructureHash()).isNotEqualTo(hash);
+        assertThat(extractor.extract("{\"a\":{\"c\":1}}").getStructureHash()).isNotEqualTo(hash);
+        assertThat(extractor.extract("{\"a\":[{\"b\":1}]}").getStructureHash()).isNotEqualTo(hash);
+        assertThat(extractor.extract("{\"b\":1}").getStructureHash()).isNotEqualTo(hash);
+    }
+
+    @Test
+    void depthAndWidthLimitsApplyToBothSides() {
+        ReflectionTestUtils.setField(extractor, "maxDepth", 2);
+        ReflectionTestUtils.setField(extractor, "maxWidth", 2);
+        String json = "{\"a\":{\"b\":{\"c\":1},\"d\":[[1]]},\"e\":[1,\"x\",true],\"a\":{\"b\":2},\"f\":1}";
+
+        // The repeated "a" and "f" arrive once the object is full and are left out
+        assertThat(extractor.describe(json))
+            .isEqualTo("{\"a\":{\"b\":\"object\",\"d\":\"array\"},\"e\":[\"integer\",\"string\"]}");
+        assertThat(StructureHash.ofDocument(extractor.describe(json)))
+            .isEqualTo(extractor.extract(json).getStructureHash());
+    }
+
+    @Test
+    void extractsServiceAndLevelByPrecedence() {
+        PayloadSummary summary = extractor.extract(
+            "{\"application\":\"app\",\"service_name\":\"svc\",\"severity\":\"ERROR\",\"log_level\":\"DEBUG\"}");
+
+        assertThat(summary.getServiceName()).isEqualTo("svc");
+        assertThat(summary.getLogLevel()).isEqualTo("DEBUG");
+    }
+
+    @Test
+    void unparseablePayloadIsAnEmptyObject() {
+        assertThat(extractor.extract("not json")).isEqualTo(PayloadSummary.unparseable());
+        assertThat(extractor.extract("[1,2]").getStructureHash()).isEqualTo(StructureHash.EMPTY_OBJECT);
+        assertThat(extractor.describe("not json")).isEqualTo(PayloadSummary.EMPTY_SCHEMA);
+        assertThat(StructureHash.ofDocument(PayloadSummary.EMPTY_SCHEMA)).isEqualTo(StructureHash.EMPTY_OBJECT);
+    }
+}
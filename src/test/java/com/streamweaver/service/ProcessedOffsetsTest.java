@@ -0,0 +1,123 @@
+package com.streamweaver.service;
+
+import com.streamweaver.repository.MessageMetadataRepository;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ProcessedOffsetsTest {
+
+    private static final int WINDOW = 128;
+    private static final TopicPartition PARTITION = new TopicPartition("raw-data", 0);
+
+    private MessageMetadataRepository repository;
+    private ProcessedOffsets processedOffsets;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(MessageMetadataRepository.class);
+        processedOffsets = new ProcessedOffsets();
+        ReflectionTestUtils.setField(processedOffsets, "enabled", true);
+        ReflectionTestUtils.setField(processedOffsets, "window", WINDOW);
+        ReflectionTestUtils.setField(processedOffsets, "messageMetadataRepository", repository);
+    }
+
+    @Test
+    void markedOffsetsAreProcessedPerPartition() {
+        processedOffsets.markProcessed("raw-data", 0, 7L);
+        processedOffsets.markProcessed("raw-data", 0, 3L);
+
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 7)).isTrue();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 3)).isTrue();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 5)).isFalse();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 8)).isFalse();
+        assertThat(processedOffsets.isProcessed("raw-data", 1, 7)).isFalse();
+        assertThat(processedOffsets.isProcessed("other", 0, 7)).isFalse();
+    }
+
+    @Test
+    void offsetsBelowTheWindowAreTreatedAsNew() {
+        processedOffsets.markProcessed("raw-data", 0, 10L);
+        processedOffsets.markProcessed("raw-data", 0, 100L);
+        processedOffsets.markProcessed("raw-data", 0, 200L);
+
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 10)).isFalse();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 100)).isTrue();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 200)).isTrue();
+
+        // Too old to be tracked, so marking it changes nothing
+        processedOffsets.markProcessed("raw-data", 0, 10L);
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 10)).isFalse();
+    }
+
+    @Test
+    void reusedSlotsDoNotReportOffsetsOfThePreviousLap() {
+        for (long offset = 0; offset < 4; offset++) {
+            processedOffsets.markProcessed("raw-data", 0, offset);
+        }
+        processedOffsets.markProcessed("raw-data", 0, 130L);
+
+        // 128 and 129 share the slots of 0 and 1
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 128)).isFalse();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 129)).isFalse();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 130)).isTrue();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 3)).isTrue();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 2)).isFalse();
+    }
+
+    @Test
+    void seedMarksTheOffsetsStoredFromThePosition() {
+        when(repository.findOffsetsFrom("raw-data", 0, 50L, PageRequest.of(0, WINDOW)))
+            .thenReturn(List.of(50L, 52L));
+
+        processedOffsets.seed(PARTITION, 50);
+
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 50)).isTrue();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 51)).isFalse();
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 52)).isTrue();
+    }
+
+    @Test
+    void failedSeedLeavesEveryOffsetNew() {
+        when(repository.findOffsetsFrom(anyString(), anyInt(), anyLong(), any()))
+            .thenThrow(new DataAccessResourceFailureException("down"));
+
+        processedOffsets.seed(PARTITION, 0);
+
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 0)).isFalse();
+    }
+
+    @Test
+    void forgottenPartitionsStartEmpty() {
+        processedOffsets.markProcessed("raw-data", 0, 1L);
+
+        processedOffsets.forget(List.of(PARTITION));
+
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 1)).isFalse();
+    }
+
+    @Test
+    void disabledDeduplicationNeverSkips() {
+        ReflectionTestUtils.setField(processedOffsets, "enabled", false);
+
+        processedOffsets.markProcessed("raw-data", 0, 1L);
+        processedOffsets.seed(PARTITION, 0);
+
+        assertThat(processedOffsets.isProcessed("raw-data", 0, 1)).isFalse();
+        verifyNoInteractions(repository);
+    }
+}
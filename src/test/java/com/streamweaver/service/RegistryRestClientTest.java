@@ -0,0 +1,175 @@
+package com.streamweaver.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RegistryRestClientTest {
+
+    private HttpServer server;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private volatile int status = 200;
+    private volatile CountDownLatch release;
+
+    private RegistryRestClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        client = new RegistryRestClient();
+        ReflectionTestUtils.setField(client, "schemaRegistryUrl",
+            "http://localhost:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(client, "readTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(client, "subjectsTtlMs", 60_000L);
+        ReflectionTestUtils.setField(client, "maxCachedSchemas", 2);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void subjectsAreCachedForTheirTtl() {
+        assertThat(client.getSubjects()).containsExactly("raw-data-value", "orders-value");
+        assertThat(client.getSubjects()).containsExactly("raw-data-value", "orders-value");
+
+        assertThat(requestsTo("/subjects")).isEqualTo(1);
+    }
+
+    @Test
+    void staleSubjectsAreServedWhileTheRegistryFails() {
+        ReflectionTestUtils.setField(client, "subjectsTtlMs", 0L);
+        List<String> subjects = client.getSubjects();
+
+        status = 503;
+
+        assertThat(client.getSubjects()).isEqualTo(subjects);
+        assertThat(requestsTo("/subjects")).isEqualTo(2);
+    }
+
+    @Test
+    void subjectsFailWithoutACachedCopy() {
+        status = 500;
+
+        assertThatThrownBy(() -> client.getSubjects()).isInstanceOf(HttpServerErrorException.class);
+    }
+
+    @Test
+    void schemaVersionsAreCachedAndEvictedLeastRecentlyUsed() {
+        assertThat(client.getSchema("raw-data-value", 1)).isEqualTo(schema("raw-data-value", 1));
+        client.getSchema("raw-data-value", 2);
+        client.getSchema("raw-data-value", 1);
+        assertThat(requestsTo("/subjects/raw-data-value/versions/1")).isEqualTo(1);
+
+        // Holds two schemas: version 2 is the least recently used
+        client.getSchema("raw-data-value", 3);
+        client.getSchema("raw-data-value", 1);
+        client.getSchema("raw-data-value", 2);
+
+        assertThat(requestsTo("/subjects/raw-data-value/versions/1")).isEqualTo(1);
+        assertThat(requestsTo("/subjects/raw-data-value/versions/2")).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentMissesShareOneRequest() throws Exception {
+        release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(() -> client.getSchema("orders-value", 7)));
+            }
+            while (requestsTo("/subjects/orders-value/versions/7") == 0) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(schema("orders-value", 7));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertThat(requestsTo("/subjects/orders-value/versions/7")).isEqualTo(1);
+    }
+
+    @Test
+    void failedSchemaFetchIsNotCached() {
+        status = 500;
+        assertThatThrownBy(() -> client.getSchema("raw-data-value", 1)).isInstanceOf(HttpServerErrorException.class);
+
+        status = 200;
+
+        assertThat(client.getSchema("raw-data-value", 1)).isEqualTo(schema("raw-data-value", 1));
+        assertThat(requestsTo("/subjects/raw-data-value/versions/1")).isEqualTo(2);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+        CountDownLatch latch = release;
+        if (latch != null) {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        String body;
+        if (path.equals("/subjects")) {
+            body = "[\"raw-data-value\",\"orders-value\"]";
+        } else {
+            String[] parts = path.split("/");
+            body = schema(parts[2], Integer.parseInt(parts[4]));
+        }
+        byte[] bytes = (status == 200 ? body : "{\"error_code\":" + status + "}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private int requestsTo(String path) {
+        AtomicInteger count = requests.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    private static String schema(String subject, int version) {
+        return "{\"subject\":\"" + subject + "\",\"version\":" + version + ",\"id\":" + (100 + version)
+            + ",\"schema\":\"{\\\"type\\\":\\\"string\\\"}\"}";
+    }
+}
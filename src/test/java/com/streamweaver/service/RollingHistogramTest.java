@@ -0,0 +1,93 @@
+package com.streamweaver.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollingHistogramTest {
+
+    private static final long SLOT_MS = 1_000;
+
+    @Test
+    void bucketUpperBoundIsWithinAnEighthAboveTheValue() {
+        int previous = 0;
+        for (long value = 0; value < 1L << 24; value = value < 4096 ? value + 1 : value + value / 97) {
+            int index = RollingHistogram.bucketIndex(value);
+            long upper = RollingHistogram.bucketUpperBound(index);
+
+            assertThat(index).isGreaterThanOrEqualTo(previous).isLessThan(RollingHistogram.BUCKETS);
+            assertThat(upper).isGreaterThanOrEqualTo(value);
+            assertThat(upper - value).isLessThanOrEqualTo(value / 8);
+            previous = index;
+        }
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        assertThat(RollingHistogram.bucketIndex(-5)).isZero();
+        assertThat(RollingHistogram.bucketIndex(Long.MAX_VALUE)).isEqualTo(RollingHistogram.BUCKETS - 1);
+    }
+
+    @Test
+    void percentilesOfUniformValues() {
+        RollingHistogram histogram = new RollingHistogram(SLOT_MS, 10);
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(0, value);
+        }
+
+        RollingHistogram.Snapshot snapshot = histogram.snapshot(0, SLOT_MS);
+
+        assertThat(snapshot.getCount()).isEqualTo(1000);
+        assertThat(snapshot.getMax()).isEqualTo(1000);
+        assertThat(snapshot.percentile(0.5)).isBetween(500L, 500L + 500 / 8);
+        assertThat(snapshot.percentile(0.99)).isBetween(990L, 1000L);
+        assertThat(snapshot.percentile(1.0)).isEqualTo(1000);
+        assertThat(snapshot.percentile(0.0)).isEqualTo(1);
+    }
+
+    @Test
+    void percentileIsCappedAtTheExactMax() {
+        RollingHistogram histogram = new RollingHistogram(SLOT_MS, 10);
+        histogram.record(0, 1001);
+
+        assertThat(histogram.snapshot(0, SLOT_MS).percentile(0.5)).isEqualTo(1001);
+    }
+
+    @Test
+    void emptySnapshotReportsZero() {
+        RollingHistogram.Snapshot snapshot = new RollingHistogram(SLOT_MS, 10).snapshot(5_000, 10_000);
+
+        assertThat(snapshot.getCount()).isZero();
+        assertThat(snapshot.percentile(0.99)).isZero();
+    }
+
+    @Test
+    void snapshotMergesOnlySlotsInsideTheWindow() {
+        RollingHistogram histogram = new RollingHistogram(SLOT_MS, 10);
+        histogram.record(0, 100);
+        histogram.record(2_500, 200);
+        histogram.record(4_999, 300);
+
+        RollingHistogram.Snapshot lastThreeSlots = histogram.snapshot(4_999, 3 * SLOT_MS);
+        assertThat(lastThreeSlots.getCount()).isEqualTo(2);
+        assertThat(lastThreeSlots.getMax()).isEqualTo(300);
+
+        RollingHistogram.Snapshot allSlots = histogram.snapshot(4_999, 10 * SLOT_MS);
+        assertThat(allSlots.getCount()).isEqualTo(3);
+
+        // Slots ahead of the snapshot time are left out too
+        assertThat(histogram.snapshot(1_000, 10 * SLOT_MS).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void slotIsResetWhenTheRingWrapsAround() {
+        RollingHistogram histogram = new RollingHistogram(SLOT_MS, 4);
+        histogram.record(500, 5_000);
+        histogram.record(4_500, 7);
+
+        RollingHistogram.Snapshot snapshot = histogram.snapshot(4_500, 4 * SLOT_MS);
+
+        assertThat(snapshot.getCount()).isEqualTo(1);
+        assertThat(snapshot.getMax()).isEqualTo(7);
+    }
+}
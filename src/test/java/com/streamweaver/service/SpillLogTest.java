@@ -0,0 +1,208 @@
+package com.streamweaver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.streamweaver.entity.MessageMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpillLogTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void appendedRowsAreReadBackAndCommitted() throws IOException {
+        SpillLog spillLog = open();
+        List<MessageMetadata> rows = rows(0, 3);
+
+        spillLog.append(rows);
+
+        assertThat(spillLog.hasBacklog()).isTrue();
+        assertThat(spillLog.pendingEntries()).isEqualTo(3);
+        SpillLog.Batch batch = spillLog.read(10);
+        assertThat(batch.getRows()).isEqualTo(rows);
+
+        spillLog.commit(batch);
+
+        assertThat(spillLog.hasBacklog()).isFalse();
+        assertThat(spillLog.read(10).isEmpty()).isTrue();
+    }
+
+    @Test
+    void readStopsAtMaxAndResumesAfterCommit() throws IOException {
+        SpillLog spillLog = open();
+        List<MessageMetadata> rows = rows(0, 5);
+        spillLog.append(rows);
+
+        SpillLog.Batch first = spillLog.read(2);
+        assertThat(first.getRows()).isEqualTo(rows.subList(0, 2));
+        // Not committed, so the same rows are read again
+        assertThat(spillLog.read(2).getRows()).isEqualTo(rows.subList(0, 2));
+
+        spillLog.commit(first);
+
+        assertThat(spillLog.pendingEntries()).isEqualTo(3);
+        assertThat(spillLog.read(10).getRows()).isEqualTo(rows.subList(2, 5));
+    }
+
+    @Test
+    void rowsSpanSegmentsAndReplayedSegmentsAreDeleted() throws IOException {
+        SpillLog spillLog = open();
+        List<MessageMetadata> rows = rows(0, 40);
+        for (MessageMetadata row : rows) {
+            spillLog.append(List.of(row));
+        }
+        assertThat(segments()).hasSizeGreaterThan(2);
+
+        SpillLog.Batch batch = spillLog.read(100);
+        assertThat(batch.getRows()).isEqualTo(rows);
+        spillLog.commit(batch);
+
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void reopenedLogResumesFromItsCheckpoint() throws IOException {
+        SpillLog spillLog = open();
+        List<MessageMetadata> rows = rows(0, 5);
+        spillLog.append(rows);
+        spillLog.commit(spillLog.read(2));
+        spillLog.close();
+
+        SpillLog reopened = open();
+
+        assertThat(reopened.pendingEntries()).isEqualTo(3);
+        assertThat(reopened.read(10).getRows()).isEqualTo(rows.subList(2, 5));
+    }
+
+    @Test
+    void entryWithBadChecksumEndsTheLogOnRecovery() throws IOException {
+        SpillLog spillLog = open();
+        List<MessageMetadata> rows = rows(0, 3);
+        spillLog.append(rows);
+        spillLog.close();
+        List<Integer> frames = frames(segments().get(0));
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            // Flip a payload byte of the last entry
+            long position = frames.get(2) + 8 + 2;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0x01);
+        }
+
+        SpillLog reopened = open();
+
+        assertThat(reopened.pendingEntries()).isEqualTo(2);
+        assertThat(reopened.read(10).getRows()).isEqualTo(rows.subList(0, 2));
+    }
+
+    @Test
+    void truncatedSegmentRecoversCompleteEntriesAndAcceptsNewOnes() throws IOException {
+        SpillLog spillLog = open();
+        List<MessageMetadata> rows = rows(0, 3);
+        spillLog.append(rows);
+        spillLog.close();
+        Path segment = segments().get(0);
+        List<Integer> frames = frames(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // A crash part way through writing the second entry
+            file.setLength(frames.get(1) + 8 + 5);
+        }
+
+        SpillLog reopened = open();
+
+        assertThat(reopened.pendingEntries()).isEqualTo(1);
+        assertThat(frames(segment)).containsExactly(0);
+        List<MessageMetadata> more = rows(10, 2);
+        reopened.append(more);
+        List<MessageMetadata> expected = new ArrayList<>(rows.subList(0, 1));
+        expected.addAll(more);
+        assertThat(reopened.read(10).getRows()).isEqualTo(expected);
+    }
+
+    @Test
+    void rowLargerThanASegmentIsRejected() throws IOException {
+        SpillLog spillLog = open();
+        MessageMetadata row = rows(0, 1).get(0);
+        row.setRawMessage("x".repeat(SEGMENT_BYTES));
+
+        assertThatThrownBy(() -> spillLog.append(List.of(row))).isInstanceOf(IOException.class);
+        assertThat(spillLog.hasBacklog()).isFalse();
+    }
+
+    private SpillLog open() throws IOException {
+        SpillLog spillLog = new SpillLog();
+        ReflectionTestUtils.setField(spillLog, "enabled", true);
+        ReflectionTestUtils.setField(spillLog, "directory", dir.toString());
+        ReflectionTestUtils.setField(spillLog, "segmentBytes", SEGMENT_BYTES);
+        ReflectionTestUtils.setField(spillLog, "objectMapper", objectMapper);
+        spillLog.open();
+        return spillLog;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    // Start positions of the framed entries in a segment, up to the first zero length
+    private static List<Integer> frames(Path segment) throws IOException {
+        List<Integer> frames = new ArrayList<>();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "r")) {
+            int position = 0;
+            while (position + 8 <= file.length()) {
+                file.seek(position);
+                int length = file.readInt();
+                if (length <= 0) {
+                    break;
+                }
+                frames.add(position);
+                position += 8 + length;
+            }
+        }
+        return frames;
+    }
+
+    private static List<MessageMetadata> rows(int first, int count) {
+        List<MessageMetadata> rows = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            rows.add(MessageMetadata.builder()
+                .messageKey("key-" + i)
+                .topic("raw-data")
+                .partition(i % 3)
+                .offset((long) i)
+                .rawMessage("{\"service\":\"api\",\"n\":" + i + ",\"padding\":\"" + "p".repeat(200) + "\"}")
+                .normalizedMessage("{\"data\":{\"n\":" + i + "}}")
+                .serviceName("api")
+                .logLevel("INFO")
+                .schemaVersion("1")
+                .schemaId(42)
+                .processingTimeMs(3L)
+                .createdAt(Instant.parse("2024-05-01T10:15:30Z"))
+                .processedAt(Instant.parse("2024-05-01T10:15:30.123Z"))
+                .createdBy("test")
+                .build());
+        }
+        return rows;
+    }
+}